@@ -4,17 +4,26 @@ import com.chatflow.client.config.ClientConfig;
 import com.chatflow.client.generator.MessageGenerator;
 import com.chatflow.client.metrics.DetailedMetricsCollector;
 import com.chatflow.client.metrics.PerformanceAnalyzer;
-import com.chatflow.client.metrics.CSVWriter;
 import com.chatflow.client.queue.MessageQueue;
+import com.chatflow.client.schedule.RateSchedule;
+import com.chatflow.client.sender.AsyncSendEngine;
 import com.chatflow.client.sender.ConnectionPool;
 import com.chatflow.client.sender.DetailedMessageSender;
+import com.chatflow.client.sender.FrameCoalescer;
+import com.chatflow.client.sender.OpenLoopSender;
+import com.chatflow.client.sender.ReplayMessageSender;
+import com.chatflow.client.sender.VirtualUserSender;
+import com.chatflow.client.util.MessageLoader;
 import com.chatflow.client.visualization.ThroughputChart;
+import com.chatflow.client.workload.WorkloadFile;
+import com.chatflow.client.workload.WorkloadSpec;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -24,6 +33,11 @@ import java.util.concurrent.TimeUnit;
 public class LoadTestClient {
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("generate")) {
+            generateWorkload(args);
+            return;
+        }
+        
         System.out.println("╔════════════════════════════════════════════════════════╗");
         System.out.println("║  ChatFlow Load Test Client - Part 2                  ║");
         System.out.println("║  CS6650 Assignment 1 - Detailed Metrics              ║");
@@ -37,6 +51,19 @@ public class LoadTestClient {
         System.out.println("Main phase: " + ClientConfig.MAIN_PHASE_THREADS + " threads × " +
                          (ClientConfig.MAIN_PHASE_MESSAGES / ClientConfig.MAIN_PHASE_THREADS) + 
                          " messages = " + ClientConfig.MAIN_PHASE_MESSAGES + " messages");
+        System.out.println("Wire protocol: " + (ClientConfig.USE_BINARY_PROTOCOL ? "BINARY" : "JSON"));
+        System.out.println("Load mode: " + (ClientConfig.OPEN_LOOP 
+                ? "OPEN LOOP (main phase: " + ClientConfig.OPEN_LOOP_SCHEDULE.describe() + ")" 
+                : "CLOSED LOOP"));
+        System.out.println("Senders: " + (ClientConfig.ASYNC_SENDER 
+                ? "ASYNC (" + ClientConfig.ASYNC_VIRTUAL_USERS + " virtual users on " + 
+                  ClientConfig.ASYNC_SENDER_THREADS + " threads, closed-loop phases)" 
+                : ClientConfig.VIRTUAL_THREAD_USERS 
+                ? "VIRTUAL THREADS (" + ClientConfig.VIRTUAL_USER_COUNT + " users, think time " + 
+                  ClientConfig.VIRTUAL_USER_THINK_TIME_MS + " ms, closed-loop phases)" 
+                : "THREAD PER SENDER"));
+        System.out.println("Messages: " + (ClientConfig.REPLAY_WORKLOAD 
+                ? "REPLAY " + ClientConfig.WORKLOAD_FILE : "GENERATED"));
         System.out.println("Detailed metrics: ENABLED");
         System.out.println("CSV output: " + ClientConfig.CSV_OUTPUT_FILE + "\n");
         
@@ -44,14 +71,47 @@ public class LoadTestClient {
         client.runLoadTest();
     }
     
+    /**
+     * generate [file] [messages] [seed]: write a replayable workload file
+     * (defaults: WORKLOAD_FILE, TOTAL_MESSAGES, WORKLOAD_SEED)
+     */
+    private static void generateWorkload(String[] args) {
+        String file = args.length > 1 ? args[1] : ClientConfig.WORKLOAD_FILE;
+        long messages = args.length > 2 ? Long.parseLong(args[2]) : ClientConfig.TOTAL_MESSAGES;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : ClientConfig.WORKLOAD_SEED;
+        
+        try {
+            long start = System.currentTimeMillis();
+            WorkloadFile.generate(file, messages, seed, WorkloadSpec.fromConfig());
+            System.out.println("✅ Workload saved: " + file + " (" + messages + " messages, seed " + 
+                             seed + ", " + (System.currentTimeMillis() - start) + " ms)");
+        } catch (Exception e) {
+            System.err.println("❌ Error generating workload: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
     public void runLoadTest() {
-        MessageQueue messageQueue = new MessageQueue(ClientConfig.QUEUE_CAPACITY);
+        MessageQueue messageQueue = new MessageQueue(ClientConfig.QUEUE_CAPACITY, ClientConfig.LOCK_FREE_QUEUE);
         DetailedMetricsCollector metricsCollector = new DetailedMetricsCollector();
-        ConnectionPool connectionPool = new ConnectionPool();
+        ConnectionPool connectionPool = new ConnectionPool(metricsCollector);
+        AsyncSendEngine asyncEngine = ClientConfig.ASYNC_SENDER
+                ? new AsyncSendEngine(ClientConfig.ASYNC_SENDER_THREADS, metricsCollector, connectionPool)
+                : null;
         
         long overallStartTime = System.currentTimeMillis();
         
         try {
+            WorkloadFile workload = null;
+            if (ClientConfig.REPLAY_WORKLOAD) {
+                workload = WorkloadFile.open(ClientConfig.WORKLOAD_FILE);
+                if (workload.getMessageCount() < ClientConfig.TOTAL_MESSAGES) {
+                    throw new IllegalStateException(ClientConfig.WORKLOAD_FILE + " has only " + 
+                            workload.getMessageCount() + " messages, " + ClientConfig.TOTAL_MESSAGES + " needed");
+                }
+                System.out.println("Replaying " + workload.getFilePath() + " (seed " + workload.getSeed() + ")\n");
+            }
+            
             // ========== Phase 1: Warmup ==========
             System.out.println("┌─────────────────────────────────────┐");
             System.out.println("│  Phase 1: Warmup                    │");
@@ -60,7 +120,8 @@ public class LoadTestClient {
             long warmupStart = System.currentTimeMillis();
             runPhase(messageQueue, metricsCollector, connectionPool,
                     ClientConfig.WARMUP_THREADS, 
-                    ClientConfig.WARMUP_TOTAL);
+                    ClientConfig.WARMUP_TOTAL,
+                    null, workload, 0, asyncEngine);
             long warmupEnd = System.currentTimeMillis();
             
             long warmupDuration = warmupEnd - warmupStart;
@@ -81,7 +142,9 @@ public class LoadTestClient {
             long mainStart = System.currentTimeMillis();
             runPhase(messageQueue, metricsCollector, connectionPool,
                     ClientConfig.MAIN_PHASE_THREADS,
-                    ClientConfig.MAIN_PHASE_MESSAGES);
+                    ClientConfig.MAIN_PHASE_MESSAGES,
+                    ClientConfig.OPEN_LOOP ? ClientConfig.OPEN_LOOP_SCHEDULE : null, 
+                    workload, ClientConfig.WARMUP_TOTAL, asyncEngine);
             long mainEnd = System.currentTimeMillis();
             
             long mainDuration = mainEnd - mainStart;
@@ -90,11 +153,25 @@ public class LoadTestClient {
             System.out.println("\n✅ Main Phase Completed:");
             System.out.println("   Duration: " + mainDuration + " ms");
             System.out.println("   Throughput: " + String.format("%.2f", mainThroughput) + " msg/sec");
-            System.out.println("   Active connections: " + connectionPool.getActiveConnectionCount() + "\n");
+            System.out.println("   Active connections: " + connectionPool.getActiveConnectionCount());
+            if (ClientConfig.WRITE_BATCH_SIZE > 1) {
+                long writes = Math.max(1, FrameCoalescer.getWrites());
+                System.out.println("   Write coalescing: " + FrameCoalescer.getFramesWritten() + " frames in " + 
+                                 FrameCoalescer.getWrites() + " writes (" + 
+                                 String.format("%.1f", (double) FrameCoalescer.getFramesWritten() / writes) + 
+                                 " per write)");
+            }
+            System.out.println();
             
             // Close all connections
+            if (asyncEngine != null) {
+                asyncEngine.shutdown();
+            }
             connectionPool.closeAll();
             
+            // Drain the metrics pipeline
+            metricsCollector.finish();
+            
             // ========== Overall Summary ==========
             long overallDuration = System.currentTimeMillis() - overallStartTime;
             
@@ -117,20 +194,21 @@ public class LoadTestClient {
             System.out.println("└─────────────────────────────────────┘");
             
             // Statistical analysis
-            PerformanceAnalyzer analyzer = new PerformanceAnalyzer(metricsCollector.getMessageRecords());
+            PerformanceAnalyzer analyzer = new PerformanceAnalyzer(
+                    metricsCollector.getAggregate(), metricsCollector.getRoomIndex());
             analyzer.printStatistics();
             
             // ========== Save CSV ==========
-            if (ClientConfig.ENABLE_DETAILED_METRICS) {
+            // (already written during the run when CSV_STREAMING is on)
+            if (ClientConfig.ENABLE_DETAILED_METRICS && !ClientConfig.CSV_STREAMING) {
                 System.out.println("Saving detailed metrics to CSV...");
-                CSVWriter csvWriter = new CSVWriter(ClientConfig.CSV_OUTPUT_FILE);
-                csvWriter.writeRecords(metricsCollector.getMessageRecords());
+                metricsCollector.replayRecords(metricsCollector.newCSVWriter());
             }
             
             // ========== Generate Chart (Part 3) ==========
             if (ClientConfig.ENABLE_VISUALIZATION) {
                 try {
-                    ThroughputChart chart = new ThroughputChart(metricsCollector.getMessageRecords());
+                    ThroughputChart chart = new ThroughputChart(metricsCollector.getAggregate());
                     chart.generateChart(ClientConfig.CHART_OUTPUT_FILE);
                 } catch (Exception e) {
                     System.err.println("❌ Error generating chart: " + e.getMessage());
@@ -147,55 +225,157 @@ public class LoadTestClient {
     
     /**
      * Run a test phase
+     * @param rateSchedule open-loop send schedule, or null for closed-loop senders
+     * @param workload     workload to replay, or null to generate messages
+     * @param workloadOffset index of the phase's first message in the workload
+     * @param asyncEngine  engine sending a generated closed-loop phase with virtual users,
+     *                     or null for sender threads
      */
     private void runPhase(MessageQueue messageQueue, 
                          DetailedMetricsCollector metricsCollector,
                          ConnectionPool connectionPool,
                          int numThreads, 
-                         int totalMessages) throws Exception {
+                         int totalMessages,
+                         RateSchedule rateSchedule,
+                         WorkloadFile workload,
+                         int workloadOffset,
+                         AsyncSendEngine asyncEngine) throws Exception {
         
-        System.out.println("Starting " + numThreads + " threads to send " + 
-                         totalMessages + " messages...\n");
+        // Replay and open loop keep their own senders
+        boolean async = asyncEngine != null && workload == null && rateSchedule == null;
+        ExecutorService virtualExecutor = ClientConfig.VIRTUAL_THREAD_USERS && !async 
+                && workload == null && rateSchedule == null ? newVirtualThreadExecutor() : null;
+        boolean virtualUsers = virtualExecutor != null;
+        int senderThreads = async ? 0 
+                : virtualUsers ? Math.min(ClientConfig.VIRTUAL_USER_COUNT, totalMessages) 
+                : numThreads;
+        if (async) {
+            System.out.println("Starting " + ClientConfig.ASYNC_VIRTUAL_USERS + " virtual users to send " + 
+                             totalMessages + " messages...\n");
+        } else if (virtualUsers) {
+            System.out.println("Starting " + senderThreads + " virtual-thread users to send " + 
+                             totalMessages + " messages...\n");
+        } else {
+            System.out.println("Starting " + numThreads + " threads to send " + 
+                             totalMessages + " messages...\n");
+        }
         
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads + 1);
+        int roomCount = ClientConfig.MAX_ROOM_ID - ClientConfig.MIN_ROOM_ID + 1;
+        int generators = workload != null || virtualUsers 
+                ? 0 : Math.max(1, Math.min(ClientConfig.GENERATOR_THREADS, roomCount));
+        boolean preEncode = ClientConfig.PRE_ENCODE_JSON && !ClientConfig.USE_BINARY_PROTOCOL;
         
-        // Start message generator
-        MessageGenerator generator = new MessageGenerator(messageQueue, totalMessages);
-        Future<?> generatorFuture = executorService.submit(generator);
+        ExecutorService executorService = virtualUsers 
+                ? virtualExecutor 
+                : Executors.newFixedThreadPool(senderThreads + generators);
+        
+        // Start message generators, one per room partition (none when replaying, or
+        // with virtual-thread users, who create their own messages)
+        List<Future<?>> generatorFutures = new ArrayList<>();
+        for (int i = 0; i < generators; i++) {
+            MessageGenerator generator = new MessageGenerator(
+                    messageQueue, totalMessages, i, generators, preEncode);
+            generatorFutures.add(executorService.submit(generator));
+        }
+        
+        // Open loop: senders take tickets from a shared schedule instead of a fixed share
+        OpenLoopSender.Schedule schedule = null;
+        if (rateSchedule != null) {
+            schedule = new OpenLoopSender.Schedule(rateSchedule, totalMessages);
+            schedule.start();
+        }
+        
+        // Async engine: virtual users on the engine's event loop replace the sender threads
+        if (async) {
+            asyncEngine.runPhase(messageQueue, totalMessages, ClientConfig.ASYNC_VIRTUAL_USERS, generatorFutures);
+        }
         
         // Calculate messages per thread
-        int messagesPerThread = totalMessages / numThreads;
-        int remainder = totalMessages % numThreads;
+        int messagesPerThread = async ? 0 : totalMessages / senderThreads;
+        int remainder = async ? 0 : totalMessages % senderThreads;
         
-        // Start sender threads (using DetailedMessageSender)
+        // Start sender threads (using DetailedMessageSender, ReplayMessageSender on a workload,
+        // or one VirtualUserSender per virtual thread)
         List<Future<?>> senderFutures = new ArrayList<>();
-        for (int i = 0; i < numThreads; i++) {
+        List<String> texts = virtualUsers ? MessageLoader.loadMessages() : null;
+        int userCount = ClientConfig.MAX_USER_ID - ClientConfig.MIN_USER_ID + 1;
+        int nextWorkloadIndex = workloadOffset;
+        for (int i = 0; i < senderThreads; i++) {
             int messagesToSend = messagesPerThread;
             if (i < remainder) {
                 messagesToSend++;
             }
             
-            DetailedMessageSender sender = new DetailedMessageSender(
-                messageQueue, 
-                metricsCollector,
-                connectionPool,
-                messagesToSend
-            );
+            Runnable sender;
+            if (virtualUsers) {
+                String roomId = String.valueOf(ThreadLocalRandom.current().nextInt(
+                        ClientConfig.MIN_ROOM_ID, ClientConfig.MAX_ROOM_ID + 1));
+                sender = new VirtualUserSender(ClientConfig.MIN_USER_ID + i % userCount, roomId, 
+                        messagesToSend, texts, metricsCollector, 
+                        ClientConfig.VIRTUAL_USER_OWN_CONNECTION ? null : connectionPool);
+            } else if (workload != null) {
+                sender = schedule != null
+                    ? new ReplayMessageSender(workload, workloadOffset, schedule, metricsCollector, connectionPool)
+                    : new ReplayMessageSender(workload, nextWorkloadIndex, nextWorkloadIndex + messagesToSend, 
+                                              metricsCollector, connectionPool);
+                nextWorkloadIndex += messagesToSend;
+            } else {
+                sender = schedule != null
+                    ? new OpenLoopSender(schedule, messageQueue, metricsCollector, connectionPool)
+                    : new DetailedMessageSender(
+                        messageQueue, 
+                        metricsCollector,
+                        connectionPool,
+                        messagesToSend
+                    );
+            }
             senderFutures.add(executorService.submit(sender));
         }
         
-        // Wait for generator
-        generatorFuture.get();
+        // Wait for generators
+        for (Future<?> future : generatorFutures) {
+            future.get();
+        }
         
         // Wait for all senders
         for (Future<?> future : senderFutures) {
             future.get();
         }
         
+        if (schedule != null) {
+            System.out.println("  Open-loop schedule: " + rateSchedule.describe() + 
+                             " | late sends (>1 ms): " + schedule.getLateSends() + 
+                             " | max lag: " + (schedule.getMaxLagNanos() / 1_000_000) + " ms");
+        }
+        
+        // Wait for the responses still in flight
+        int timedOut = connectionPool.awaitInFlight(ClientConfig.RESPONSE_TIMEOUT_MS);
+        if (timedOut > 0) {
+            System.out.println("  ⚠️  " + timedOut + " messages without response after " + 
+                             ClientConfig.RESPONSE_TIMEOUT_MS + " ms (recorded as timeouts)");
+        }
+        
         // Shutdown
         executorService.shutdown();
         if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
             executorService.shutdownNow();
         }
     }
+    
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() looked up reflectively, so the
+     * default Java 17 build still compiles and runs
+     * @return the executor, or null when the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("  ⚠️  VIRTUAL_THREAD_USERS is set but Java " + Runtime.version().feature() + 
+                             " has no virtual threads; using sender threads");
+            return null;
+        }
+    }
 }
\ No newline at end of file
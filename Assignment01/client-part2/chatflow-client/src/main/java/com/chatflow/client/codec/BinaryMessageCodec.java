@@ -0,0 +1,92 @@
+package com.chatflow.client.codec;
+
+import com.chatflow.client.model.ChatMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Binary frame protocol shared with the server (subprotocol "chatflow.binary.v1").
+ * All integers are big-endian.
+ *
+ * ChatMessage:
+ *   int32  userId
+ *   uint8  messageType ordinal (TEXT=0, JOIN=1, LEAVE=2)
+ *   int64  timestamp, epoch millis
+ *   uint8  username length, then UTF-8 bytes
+ *   uint16 message length, then UTF-8 bytes
+ *   int64  messageId (optional in the protocol, always sent by this client)
+ *
+ * Server responses start with a status byte: 0 = SUCCESS, 1 = ERROR
+ *   SUCCESS: int64 serverTimestamp, uint8 roomId length + bytes, ChatMessage (echoed)
+ *   ERROR:   int64 timestamp, uint8 error count, each uint16 length + bytes, [int64 messageId]
+ */
+public class BinaryMessageCodec {
+    
+    public static final String SUBPROTOCOL = "chatflow.binary.v1";
+    
+    public static final byte STATUS_SUCCESS = 0;
+    public static final byte STATUS_ERROR = 1;
+    
+    /** Returned by messageIdOf when the response carries no messageId */
+    public static final long NO_MESSAGE_ID = -1;
+    
+    /**
+     * Encode a chat message into a binary frame payload
+     */
+    public static byte[] encode(ChatMessage message) {
+        byte[] username = message.getUsername().getBytes(StandardCharsets.UTF_8);
+        byte[] text = message.getMessage().getBytes(StandardCharsets.UTF_8);
+        
+        ByteBuffer out = ByteBuffer.allocate(4 + 1 + 8 + 1 + username.length + 2 + text.length + 8);
+        out.putInt(Integer.parseInt(message.getUserId()));
+        out.put((byte) message.getMessageType().ordinal());
+        out.putLong(Instant.parse(message.getTimestamp()).toEpochMilli());
+        out.put((byte) username.length);
+        out.put(username);
+        out.putShort((short) text.length);
+        out.put(text);
+        out.putLong(message.getMessageId());
+        return out.array();
+    }
+    
+    /**
+     * Check the status byte of a binary server response
+     */
+    public static boolean isSuccess(ByteBuffer response) {
+        return response.remaining() > 0 && response.get(response.position()) == STATUS_SUCCESS;
+    }
+    
+    /**
+     * Read the echoed messageId of a binary server response without consuming the buffer
+     * @return the messageId, or NO_MESSAGE_ID if absent or the frame is malformed
+     */
+    public static long messageIdOf(ByteBuffer response) {
+        ByteBuffer in = response.duplicate();
+        try {
+            byte status = in.get();
+            in.getLong();                                  // server timestamp
+            if (status == STATUS_SUCCESS) {
+                skip(in, in.get() & 0xFF);                 // roomId
+                in.getInt();                               // userId
+                in.get();                                  // messageType
+                in.getLong();                              // timestamp
+                skip(in, in.get() & 0xFF);                 // username
+                skip(in, in.getShort() & 0xFFFF);          // message
+            } else {
+                int count = in.get() & 0xFF;
+                for (int i = 0; i < count; i++) {
+                    skip(in, in.getShort() & 0xFFFF);
+                }
+            }
+            return in.remaining() >= 8 ? in.getLong() : NO_MESSAGE_ID;
+        } catch (RuntimeException e) {
+            return NO_MESSAGE_ID;
+        }
+    }
+    
+    private static void skip(ByteBuffer in, int length) {
+        in.position(in.position() + length);
+    }
+}
@@ -1,5 +1,8 @@
 package com.chatflow.client.config;
 
+import com.chatflow.client.schedule.RateSchedule;
+import com.chatflow.client.sender.ConnectionPool;
+
 public class ClientConfig {
     
     // ============ Server Configuration ============
@@ -28,18 +31,95 @@ public class ClientConfig {
     public static final double JOIN_PROBABILITY = 0.05;
     public static final double LEAVE_PROBABILITY = 0.05;
     
+    // Generator threads per phase, each owning a partition of the rooms (at most one per room)
+    public static final int GENERATOR_THREADS = 1;
+    // true: generators also build each message's JSON text frame from templates, so senders
+    // don't serialize it (JSON protocol only)
+    public static final boolean PRE_ENCODE_JSON = false;
+    
+    // ============ Workload Replay ============
+    // true: senders replay WORKLOAD_FILE (written beforehand with the "generate" command,
+    // at least TOTAL_MESSAGES messages) instead of generating random messages during the run
+    public static final boolean REPLAY_WORKLOAD = false;
+    public static final String WORKLOAD_FILE = "workload/chatflow-workload.bin";
+    public static final long WORKLOAD_SEED = 42;
+    // Zipf exponent of room popularity in generated workloads, 0 = uniform
+    public static final double WORKLOAD_ROOM_SKEW = 0.0;
+    
     // ============ Connection Configuration ============
     public static final int MAX_RETRIES = 5;
     public static final int INITIAL_BACKOFF_MS = 50;
     public static final int CONNECTION_TIMEOUT_MS = 5000;
+    // Messages without a response this long after the last send are recorded as timeouts (408)
+    public static final int RESPONSE_TIMEOUT_MS = 3000;
+    // WebSocket connections per room; senders share them instead of all writing to one socket
+    public static final int CONNECTIONS_PER_ROOM = 1;
+    // ROUND_ROBIN | LEAST_IN_FLIGHT | THREAD_AFFINITY
+    public static final ConnectionPool.Selection CONNECTION_SELECTION = ConnectionPool.Selection.ROUND_ROBIN;
+    
+    // ============ Write Coalescing ============
+    // Frames per connection collected into one socket write (1 = one write per message);
+    // a partial batch is written WRITE_LINGER_MICROS after its first frame
+    public static final int WRITE_BATCH_SIZE = 1;
+    public static final long WRITE_LINGER_MICROS = 200;
+    
+    // ============ Wire Protocol ============
+    // true: compact binary frames (server subprotocol "chatflow.binary.v1")
+    // false: JSON text frames
+    public static final boolean USE_BINARY_PROTOCOL = false;
+    
+    // ============ Load Mode ============
+    // false: closed loop - each sender sends its next message as soon as the previous one is sent
+    // true:  open loop for the main phase - messages are issued at OPEN_LOOP_SCHEDULE's rate
+    //        and latency is measured from the intended send time (coordinated-omission corrected)
+    public static final boolean OPEN_LOOP = false;
+    // RateSchedule.constant(rate) | ramp(startRate, endRate, rampSeconds) | step(startRate, stepRate, stepSeconds)
+    public static final RateSchedule OPEN_LOOP_SCHEDULE = RateSchedule.step(2_000, 1_000, 10);
+    
+    // ============ Async Sender ============
+    // true: closed-loop phases (not replay / open loop) are sent by ASYNC_VIRTUAL_USERS logical
+    // users on ASYNC_SENDER_THREADS event-loop threads instead of one thread per sender; each
+    // user sends its next message when the previous one's response arrives
+    public static final boolean ASYNC_SENDER = false;
+    public static final int ASYNC_SENDER_THREADS = 4;
+    public static final int ASYNC_VIRTUAL_USERS = 10_000;
+    
+    // ============ Virtual-Thread Users (Java 21 runtime, mvn -Pjava21) ============
+    // true: closed-loop generated phases are sent by VIRTUAL_USER_COUNT simulated users, one
+    // virtual thread each, with a fixed user ID and room, a JOIN / TEXT... / LEAVE session and
+    // think time between messages (ignored when ASYNC_SENDER is on; sender threads on Java 17)
+    public static final boolean VIRTUAL_THREAD_USERS = false;
+    public static final int VIRTUAL_USER_COUNT = 50_000;
+    public static final int VIRTUAL_USER_THINK_TIME_MS = 100;     // mean, exponentially distributed
+    // true: every user opens its own connection (the WebSocket library starts two platform
+    // threads per connection); false: users share their room's pooled connections
+    public static final boolean VIRTUAL_USER_OWN_CONNECTION = false;
     
     // ============ Queue Configuration ============
     public static final int QUEUE_CAPACITY = 10_000;
+    // true: lock-free bounded array queue (no locks, no node per message);
+    // false: LinkedBlockingQueue
+    public static final boolean LOCK_FREE_QUEUE = false;
+    // Messages a sender takes from the queue at once (1 = one poll per message)
+    public static final int SENDER_BATCH_SIZE = 16;
     
     // ============ Feature Flags - Part 2 & 3 ============
     // Part 2: Detailed metrics
     public static final boolean ENABLE_DETAILED_METRICS = true;
     public static final String CSV_OUTPUT_FILE = "results/performance-metrics.csv";
+    // true: the CSV is written by the metrics drain thread while the test runs, so the test
+    // ends without an export pause; false: written from the stored records after the run
+    public static final boolean CSV_STREAMING = true;
+    public static final boolean CSV_GZIP = false;             // write CSV_OUTPUT_FILE + ".gz"
+    public static final long CSV_ROTATE_RECORDS = 0;          // new numbered file every N records, 0 = one file
+    // Where per-message records are kept for the CSV export; statistics and the chart use
+    // running aggregates. true: columnar off-heap store (23 bytes per record, needs
+    // -XX:MaxDirectMemorySize for very large runs), false: binary spill file (24 bytes each)
+    public static final boolean STORE_RECORDS_OFF_HEAP = true;
+    public static final String RECORD_SPILL_FILE = "results/message-records.bin";
+    // Metric records buffered per ring before the background drain (power of two); recording
+    // threads share a fixed set of rings (about two per core), however many threads there are
+    public static final int METRICS_RING_CAPACITY = 8192;
     
     // Part 3: Visualization
     public static final boolean ENABLE_VISUALIZATION = true;
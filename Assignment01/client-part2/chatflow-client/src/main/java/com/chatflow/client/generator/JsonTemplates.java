@@ -0,0 +1,58 @@
+package com.chatflow.client.generator;
+
+import com.chatflow.client.model.MessageType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+/**
+ * JSON text frames spliced from templates instead of serialized by Jackson
+ * The constant JSON around each predefined message text is escaped by Jackson once;
+ * per message only the IDs, timestamp and type are appended. The output is identical to
+ * ObjectMapper.writeValueAsString(ChatMessage). Not thread-safe (reuses one buffer):
+ * one instance per thread.
+ */
+public class JsonTemplates {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    // The constant JSON after the timestamp, per message type
+    private static final String[] TYPE_SEGMENTS = new String[MessageType.values().length];
+    static {
+        for (MessageType type : MessageType.values()) {
+            TYPE_SEGMENTS[type.ordinal()] = "\",\"messageType\":\"" + type.name() + "\"}";
+        }
+    }
+    
+    // The constant JSON between username and timestamp, per message text
+    private final String[] textSegments;
+    private final StringBuilder json = new StringBuilder(256);
+    
+    public JsonTemplates(List<String> texts) {
+        textSegments = new String[texts.size()];
+        for (int i = 0; i < textSegments.length; i++) {
+            try {
+                textSegments[i] = "\",\"message\":" + OBJECT_MAPPER.writeValueAsString(texts.get(i)) + 
+                                  ",\"timestamp\":\"";
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot encode message: " + texts.get(i), e);
+            }
+        }
+    }
+    
+    /**
+     * @param textIndex index of the message text in the list given to the constructor
+     */
+    public String encode(long messageId, String userId, String username, 
+                         int textIndex, String timestamp, MessageType messageType) {
+        json.setLength(0);
+        json.append("{\"messageId\":").append(messageId)
+            .append(",\"userId\":\"").append(userId)
+            .append("\",\"username\":\"").append(username)
+            .append(textSegments[textIndex])
+            .append(timestamp)
+            .append(TYPE_SEGMENTS[messageType.ordinal()]);
+        return json.toString();
+    }
+}
@@ -7,31 +7,86 @@ import com.chatflow.client.queue.MessageQueue;
 import com.chatflow.client.util.MessageLoader;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Message Generator (Producer)
- * Single thread that generates all 500,000 messages and puts them in the queue
+ * Generates messages and puts them in the queue. Several generators can run side by side,
+ * each owning a partition of the rooms (room r belongs to partition (r - MIN_ROOM_ID) % N)
+ * and a matching share of the messages. Optionally each message is also pre-encoded as
+ * JSON from per-message templates, so senders don't serialize it again.
  */
 public class MessageGenerator implements Runnable {
     
+    // Correlation IDs are unique across phases and generators
+    private static final AtomicLong MESSAGE_IDS = new AtomicLong(0);
+    
     private final MessageQueue messageQueue;
     private final int totalMessages;
     private final List<String> predefinedMessages;
+    private final String label;
+    
+    // Room IDs of this generator's partition
+    private final int[] rooms;
+    
+    // Pre-encoding templates, null when messages are serialized by the senders
+    private final JsonTemplates jsonTemplates;
+    
+    // ISO-8601 timestamp, formatted at most once per millisecond
+    private long lastTimestampMillis = -1;
+    private String lastTimestamp;
     
     public MessageGenerator(MessageQueue messageQueue, int totalMessages) {
+        this(messageQueue, totalMessages, 0, 1, false);
+    }
+    
+    /**
+     * @param totalMessages messages of the whole phase; this generator produces its partition's share
+     * @param partition     0 .. partitions - 1
+     * @param partitions    number of generators, at most the number of rooms
+     * @param preEncode     attach the JSON encoding to each message (ChatMessage.getEncodedJson())
+     */
+    public MessageGenerator(MessageQueue messageQueue, int totalMessages, 
+                            int partition, int partitions, boolean preEncode) {
+        int roomCount = ClientConfig.MAX_ROOM_ID - ClientConfig.MIN_ROOM_ID + 1;
+        List<Integer> partitionRooms = new ArrayList<>();
+        int roomsBefore = 0;
+        for (int i = 0; i < roomCount; i++) {
+            if (i % partitions == partition) {
+                partitionRooms.add(ClientConfig.MIN_ROOM_ID + i);
+            } else if (i % partitions < partition) {
+                roomsBefore++;
+            }
+        }
+        this.rooms = partitionRooms.stream().mapToInt(Integer::intValue).toArray();
+        
+        // Share proportional to the number of rooms, so rooms stay evenly loaded
+        this.totalMessages = (int) ((long) totalMessages * (roomsBefore + rooms.length) / roomCount
+                                  - (long) totalMessages * roomsBefore / roomCount);
         this.messageQueue = messageQueue;
-        this.totalMessages = totalMessages;
         this.predefinedMessages = MessageLoader.loadMessages();
+        this.label = partitions > 1 ? "MessageGenerator " + (partition + 1) + "/" + partitions : "MessageGenerator";
+        this.jsonTemplates = preEncode ? new JsonTemplates(predefinedMessages) : null;
         
-        System.out.println("MessageGenerator initialized with " + 
-                         predefinedMessages.size() + " predefined messages");
+        System.out.println(label + " initialized with " + 
+                         predefinedMessages.size() + " predefined messages" + 
+                         (partitions > 1 ? ", " + rooms.length + " rooms" : "") + 
+                         (preEncode ? ", pre-encoded JSON" : ""));
+    }
+    
+    /**
+     * Next correlation ID, for messages created outside a generator
+     */
+    public static long nextMessageId() {
+        return MESSAGE_IDS.incrementAndGet();
     }
     
     @Override
     public void run() {
-        System.out.println("🔄 MessageGenerator started - generating " + 
+        System.out.println("🔄 " + label + " started - generating " + 
                          totalMessages + " messages...");
         
         long startTime = System.currentTimeMillis();
@@ -45,17 +100,17 @@ public class MessageGenerator implements Runnable {
                 
                 // Progress update every 50,000 messages
                 if ((i + 1) % 50000 == 0) {
-                    System.out.println("  Generated: " + (i + 1) + " messages");
+                    System.out.println("  " + label + " generated: " + (i + 1) + " messages");
                 }
             }
             
             long duration = System.currentTimeMillis() - startTime;
-            System.out.println("MessageGenerator completed: " + generatedCount + 
+            System.out.println(label + " completed: " + generatedCount + 
                              " messages in " + duration + "ms");
             
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            System.err.println("MessageGenerator interrupted after " + 
+            System.err.println(label + " interrupted after " + 
                              generatedCount + " messages");
         }
     }
@@ -73,39 +128,51 @@ public class MessageGenerator implements Runnable {
         );
         
         // Generate username from userId
-        String username = "user" + userId;
+        String userIdText = String.valueOf(userId);
+        String username = "user" + userIdText;
         
         // Select random message from predefined messages
-        String messageText = predefinedMessages.get(
-            random.nextInt(predefinedMessages.size())
-        );
+        int messageIndex = random.nextInt(predefinedMessages.size());
+        String messageText = predefinedMessages.get(messageIndex);
         
-        // Generate random roomId (1-20)
-        int roomId = random.nextInt(
-            ClientConfig.MIN_ROOM_ID, 
-            ClientConfig.MAX_ROOM_ID + 1
-        );
+        // Generate random roomId from this generator's rooms (all of 1-20 with one generator)
+        int roomId = rooms[random.nextInt(rooms.length)];
         
         // Generate messageType with probability distribution
         // 90% TEXT, 5% JOIN, 5% LEAVE
         MessageType messageType = generateMessageType(random);
         
         // Current timestamp in ISO-8601 format
-        String timestamp = Instant.now().toString();
+        String timestamp = currentTimestamp();
         
         // Create message
         ChatMessage message = new ChatMessage(
-            String.valueOf(userId),
+            userIdText,
             username,
             messageText,
             timestamp,
             messageType
         );
         message.setRoomId(String.valueOf(roomId));
+        message.setMessageId(MESSAGE_IDS.incrementAndGet());
+        
+        if (jsonTemplates != null) {
+            message.setEncodedJson(jsonTemplates.encode(message.getMessageId(), userIdText, 
+                    username, messageIndex, timestamp, messageType));
+        }
         
         return message;
     }
     
+    private String currentTimestamp() {
+        long now = System.currentTimeMillis();
+        if (now != lastTimestampMillis) {
+            lastTimestampMillis = now;
+            lastTimestamp = Instant.ofEpochMilli(now).toString();
+        }
+        return lastTimestamp;
+    }
+    
     /**
      * Generate message type based on probability distribution
      * 90% TEXT, 5% JOIN, 5% LEAVE
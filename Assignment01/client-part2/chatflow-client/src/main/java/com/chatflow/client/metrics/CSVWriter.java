@@ -1,49 +1,267 @@
 package com.chatflow.client.metrics;
 
-import com.chatflow.client.model.MessageRecord;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
+import com.chatflow.client.model.MessageType;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * CSV writer for message records
+ * Streaming CSV writer for message records
+ * A RecordSink: records are formatted one at a time into a large byte buffer (longs are
+ * written digit by digit, nothing is boxed) and flushed to a FileChannel, optionally
+ * through gzip. Added to the MetricsPipeline it writes the file on the drain thread while
+ * the test runs; it can also be fed afterwards (see DetailedMetricsCollector.replayRecords).
+ * With rotation, a new numbered file (each with a header) is started every N records.
  */
-public class CSVWriter {
-    
+public class CSVWriter implements RecordSink {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Longest row without the room ID: timestamp, type, latency, status, separators
+    private static final int MAX_ROW_SIZE = 96;
+
+    private static final byte[] HEADER =
+            "timestamp,messageType,latencyMs,statusCode,roomId\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[][] MESSAGE_TYPES;
+    static {
+        MessageType[] types = MessageType.values();
+        MESSAGE_TYPES = new byte[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            MESSAGE_TYPES[i] = types[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
     private final String filePath;
-    
-    public CSVWriter(String filePath) {
-        this.filePath = filePath;
+    private final RoomIndex roomIndex;
+    private final boolean gzip;
+    private final long rotateRecords;
+
+    // Room IDs encoded once, by room index
+    private byte[][] roomIds = new byte[32][];
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+
+    private FileChannel channel;
+    private OutputStream compressed;
+    private String currentFile;
+    private int fileNumber = 0;
+    private long fileRecords = 0;
+    private long recordCount = 0;
+
+    /**
+     * Open filePath as a single uncompressed CSV file
+     */
+    public CSVWriter(String filePath, RoomIndex roomIndex) throws IOException {
+        this(filePath, roomIndex, false, 0);
     }
-    
+
     /**
-     * Write message records to CSV file
+     * Open the (first) CSV file and write the header
      * Format: timestamp, messageType, latencyMs, statusCode, roomId
+     * latencyMs keeps the nanosecond resolution of the measurement (e.g. 0.153412)
+     * @param gzip          compress the output; ".gz" is appended to the file name(s)
+     * @param rotateRecords records per file, 0 for a single file; rotated files are
+     *                      numbered: performance-metrics-0001.csv, -0002.csv, ...
      */
-    public void writeRecords(List<MessageRecord> records) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath);
-             CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT
-                 .withHeader("timestamp", "messageType", "latencyMs", "statusCode", "roomId"))) {
-            
-            for (MessageRecord record : records) {
-                printer.printRecord(
-                    record.getTimestamp(),
-                    record.getMessageType(),
-                    record.getLatencyMs(),
-                    record.getStatusCode(),
-                    record.getRoomId()
-                );
+    public CSVWriter(String filePath, RoomIndex roomIndex, boolean gzip, long rotateRecords) throws IOException {
+        this.filePath = filePath;
+        this.roomIndex = roomIndex;
+        this.gzip = gzip;
+        this.rotateRecords = rotateRecords;
+        openNextFile();
+    }
+
+    @Override
+    public void accept(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        if (rotateRecords > 0 && fileRecords == rotateRecords) {
+            rotate();
+        }
+        byte[] roomId = roomId(roomIndex);
+        if (BUFFER_SIZE - position < MAX_ROW_SIZE + roomId.length) {
+            flush();
+        }
+
+        putLong(timestamp);
+        buffer[position++] = ',';
+        putBytes(MESSAGE_TYPES[typeOrdinal]);
+        buffer[position++] = ',';
+        putMillis(latencyNanos);
+        buffer[position++] = ',';
+        putLong(statusCode);
+        buffer[position++] = ',';
+        putBytes(roomId);
+        buffer[position++] = '\n';
+
+        fileRecords++;
+        recordCount++;
+    }
+
+    @Override
+    public void close() {
+        closeFile();
+        System.out.println("✅ CSV file saved: " + (fileNumber > 1
+                ? fileNumber + " files, last " + currentFile : currentFile));
+        System.out.println("   Total records: " + recordCount);
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    private void openNextFile() throws IOException {
+        fileNumber++;
+        currentFile = fileName(fileNumber);
+        Path path = Paths.get(currentFile);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        compressed = gzip ? new FastGZIPOutputStream(Channels.newOutputStream(channel)) : null;
+        fileRecords = 0;
+        putBytes(HEADER);
+    }
+
+    private String fileName(int number) {
+        String name = filePath;
+        if (rotateRecords > 0) {
+            int dot = name.lastIndexOf('.');
+            String suffix = String.format("-%04d", number);
+            name = dot > name.lastIndexOf('/') ? name.substring(0, dot) + suffix + name.substring(dot) : name + suffix;
+        }
+        return gzip ? name + ".gz" : name;
+    }
+
+    private void rotate() {
+        closeFile();
+        try {
+            openNextFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error creating CSV file " + fileName(fileNumber), e);
+        }
+    }
+
+    private void closeFile() {
+        flush();
+        try {
+            if (compressed != null) {
+                compressed.close();   // finishes the gzip trailer and closes the channel
+            } else {
+                channel.close();
             }
-            
-            System.out.println("✅ CSV file saved: " + filePath);
-            System.out.println("   Total records: " + records.size());
-            
         } catch (IOException e) {
-            System.err.println("❌ Error writing CSV file: " + e.getMessage());
-            throw e;
+            throw new UncheckedIOException("Error closing CSV file " + currentFile, e);
+        }
+    }
+
+    private void flush() {
+        try {
+            if (compressed != null) {
+                compressed.write(buffer, 0, position);
+            } else {
+                ByteBuffer out = ByteBuffer.wrap(buffer, 0, position);
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing CSV file " + currentFile, e);
+        }
+        position = 0;
+    }
+
+    private byte[] roomId(int index) {
+        if (index >= roomIds.length) {
+            roomIds = Arrays.copyOf(roomIds, Math.max(index + 1, roomIds.length * 2));
+        }
+        byte[] id = roomIds[index];
+        if (id == null) {
+            id = roomIndex.roomOf(index).getBytes(StandardCharsets.UTF_8);
+            roomIds[index] = id;
+        }
+        return id;
+    }
+
+    private void putBytes(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Decimal digits of a long, without going through a String
+     */
+    private void putLong(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                putBytes(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        reverse(start, position - 1);
+    }
+
+    /**
+     * Nanoseconds as milliseconds with up to 6 decimals, trailing zeros dropped (0.153412, 12.5, 0)
+     */
+    private void putMillis(long nanos) {
+        if (nanos < 0) {
+            buffer[position++] = '-';
+            nanos = -nanos;
+        }
+        putLong(nanos / 1_000_000);
+        int fraction = (int) (nanos % 1_000_000);
+        if (fraction == 0) {
+            return;
+        }
+        buffer[position++] = '.';
+        int digits = 6;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[position + i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        position += digits;
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            byte tmp = buffer[from];
+            buffer[from++] = buffer[to];
+            buffer[to--] = tmp;
+        }
+    }
+
+    /**
+     * gzip at the fastest level: CSV rows compress well anyway, and the writer must keep
+     * up with the drain thread
+     */
+    private static final class FastGZIPOutputStream extends GZIPOutputStream {
+        FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, 1 << 16);
+            def.setLevel(Deflater.BEST_SPEED);
         }
     }
-}
\ No newline at end of file
+}
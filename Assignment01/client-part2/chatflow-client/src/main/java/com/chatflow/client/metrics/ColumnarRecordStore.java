@@ -0,0 +1,153 @@
+package com.chatflow.client.metrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar, off-heap store of every metric record
+ * Each field lives in its own primitive column (int64 timestamp, int64 latencyNanos,
+ * int16 statusCode, int8 type ordinal, int32 room index = 23 bytes per record) inside
+ * direct buffers allocated in fixed-size chunks, so 100M records take ~2.3 GB outside
+ * the heap and no record is ever materialized as an object. Records are read back by
+ * index or replayed, whole or by range, into any RecordSink.
+ *
+ * Appended by one thread (the MetricsPipeline drain thread); read after the run.
+ * Direct memory is capped by -XX:MaxDirectMemorySize (default: the max heap size).
+ */
+public class ColumnarRecordStore implements RecordSink {
+
+    public static final int BYTES_PER_RECORD = 8 + 8 + 2 + 1 + 4;
+
+    // Records per chunk; a power of two so index -> (chunk, offset) is a shift and a mask
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private Chunk current;
+    private long size = 0;
+
+    @Override
+    public void accept(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        int offset = (int) (size & CHUNK_MASK);
+        if (offset == 0) {
+            current = new Chunk();
+            chunks.add(current);
+        }
+        current.timestamps.putLong(offset << 3, timestamp);
+        current.latencies.putLong(offset << 3, latencyNanos);
+        current.statuses.putShort(offset << 1, (short) statusCode);
+        current.types.put(offset, (byte) typeOrdinal);
+        current.rooms.putInt(offset << 2, roomIndex);
+        size++;
+    }
+
+    /**
+     * @return number of records stored
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return direct memory held by the columns, in bytes
+     */
+    public long getOffHeapBytes() {
+        return (long) chunks.size() * CHUNK_SIZE * BYTES_PER_RECORD;
+    }
+
+    public long getTimestamp(long index) {
+        return chunk(index).timestamps.getLong(offset(index) << 3);
+    }
+
+    public long getLatencyNanos(long index) {
+        return chunk(index).latencies.getLong(offset(index) << 3);
+    }
+
+    public int getStatusCode(long index) {
+        return chunk(index).statuses.getShort(offset(index) << 1);
+    }
+
+    public int getTypeOrdinal(long index) {
+        return chunk(index).types.get(offset(index));
+    }
+
+    public int getRoomIndex(long index) {
+        return chunk(index).rooms.getInt(offset(index) << 2);
+    }
+
+    /**
+     * Stream every record into a sink, in recording order, then close the sink
+     * @return number of records replayed
+     */
+    public long replay(RecordSink sink) {
+        long count = replay(sink, 0, size);
+        sink.close();
+        return count;
+    }
+
+    /**
+     * Stream records [from, to) into a sink; the sink is not closed.
+     * Safe to call from several threads at once on disjoint or overlapping ranges
+     * once appending has finished.
+     * @return number of records replayed
+     */
+    public long replay(RecordSink sink, long from, long to) {
+        long end = Math.min(to, size);
+        long index = Math.max(0, from);
+        while (index < end) {
+            Chunk chunk = chunk(index);
+            int offset = offset(index);
+            int last = (int) Math.min(CHUNK_SIZE, offset + (end - index));
+            for (int i = offset; i < last; i++) {
+                sink.accept(
+                    chunk.timestamps.getLong(i << 3),
+                    chunk.latencies.getLong(i << 3),
+                    chunk.statuses.getShort(i << 1),
+                    chunk.types.get(i),
+                    chunk.rooms.getInt(i << 2)
+                );
+            }
+            index += last - offset;
+        }
+        return Math.max(0, end - Math.max(0, from));
+    }
+
+    /**
+     * Drop all records; the direct memory is returned once the buffers are collected
+     */
+    public void clear() {
+        chunks.clear();
+        current = null;
+        size = 0;
+    }
+
+    private Chunk chunk(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        }
+        return chunks.get((int) (index >>> CHUNK_BITS));
+    }
+
+    private static int offset(long index) {
+        return (int) (index & CHUNK_MASK);
+    }
+
+    /**
+     * One column buffer per field, CHUNK_SIZE records each (absolute get/put only,
+     * so concurrent readers never share a buffer position)
+     */
+    private static final class Chunk {
+        final ByteBuffer timestamps = column(8);
+        final ByteBuffer latencies = column(8);
+        final ByteBuffer statuses = column(2);
+        final ByteBuffer types = column(1);
+        final ByteBuffer rooms = column(4);
+
+        private static ByteBuffer column(int width) {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE * width).order(ByteOrder.nativeOrder());
+        }
+    }
+}
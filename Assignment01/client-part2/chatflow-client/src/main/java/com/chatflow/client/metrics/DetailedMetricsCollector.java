@@ -1,37 +1,80 @@
 package com.chatflow.client.metrics;
 
-import com.chatflow.client.model.MessageRecord;
+import com.chatflow.client.config.ClientConfig;
 import com.chatflow.client.model.MessageType;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Detailed metrics collector for Client Part 2
- * Records latency for each message
+ * Records latency for each message into a streaming MetricsPipeline: per-thread ring
+ * buffers drained in the background into a columnar off-heap store, analyzed in
+ * parallel after the run, or else into a running MetricsAggregate plus, with detailed
+ * metrics enabled, a binary spill file. The heap stays flat whatever the number of
+ * messages.
  */
 public class DetailedMetricsCollector extends BasicMetricsCollector {
     
-    // Thread-safe queue for storing message records
-    private final ConcurrentLinkedQueue<MessageRecord> messageRecords;
+    private final RoomIndex roomIndex = new RoomIndex();
+    private MetricsAggregate aggregate = new MetricsAggregate();
+    private final ColumnarRecordStore recordStore;
+    private final RecordSpillFile spillFile;
+    private final MetricsPipeline pipeline;
     
     public DetailedMetricsCollector() {
         super();
-        this.messageRecords = new ConcurrentLinkedQueue<>();
+        
+        List<RecordSink> sinks = new ArrayList<>();
+        
+        ColumnarRecordStore store = null;
+        RecordSpillFile spill = null;
+        if (ClientConfig.ENABLE_DETAILED_METRICS && ClientConfig.STORE_RECORDS_OFF_HEAP) {
+            // The aggregate is computed from the store in finish()
+            store = new ColumnarRecordStore();
+            sinks.add(store);
+        } else {
+            sinks.add(aggregate);
+            if (ClientConfig.ENABLE_DETAILED_METRICS) {
+                try {
+                    spill = new RecordSpillFile(ClientConfig.RECORD_SPILL_FILE);
+                    sinks.add(spill);
+                } catch (IOException e) {
+                    System.err.println("❌ Cannot create " + ClientConfig.RECORD_SPILL_FILE + 
+                                     ": " + e.getMessage() + " (per-message records disabled)");
+                }
+            }
+        }
+        if (ClientConfig.ENABLE_DETAILED_METRICS && ClientConfig.CSV_STREAMING) {
+            try {
+                sinks.add(newCSVWriter());
+            } catch (IOException e) {
+                System.err.println("❌ Cannot create " + ClientConfig.CSV_OUTPUT_FILE + ": " + e.getMessage());
+            }
+        }
+        this.recordStore = store;
+        this.spillFile = spill;
+        this.pipeline = new MetricsPipeline(ClientConfig.METRICS_RING_CAPACITY, sinks);
+    }
+    
+    /**
+     * CSV sink as configured in ClientConfig (compression, rotation)
+     */
+    public CSVWriter newCSVWriter() throws IOException {
+        return new CSVWriter(ClientConfig.CSV_OUTPUT_FILE, roomIndex, 
+                ClientConfig.CSV_GZIP, ClientConfig.CSV_ROTATE_RECORDS);
     }
     
     /**
      * Record a message with latency
+     * @param latencyNanos send-to-response time from System.nanoTime(), 0 if no response
      */
     public void recordMessage(long timestamp, MessageType messageType, 
-                             long latencyMs, int statusCode, String roomId) {
-        MessageRecord record = new MessageRecord(
-            timestamp, messageType, latencyMs, statusCode, roomId
-        );
-        messageRecords.add(record);
+                             long latencyNanos, int statusCode, String roomId) {
+        pipeline.record(timestamp, latencyNanos, statusCode, 
+                messageType.ordinal(), roomIndex.indexOf(roomId));
         
         // Also update basic metrics
         if (statusCode == 200) {
@@ -42,16 +85,61 @@ public class DetailedMetricsCollector extends BasicMetricsCollector {
     }
     
     /**
-     * Get all message records as a list
+     * Drain the remaining records and close the sinks; call once all messages are recorded
+     */
+    public void finish() throws InterruptedException {
+        pipeline.close();
+        
+        if (recordStore != null) {
+            long start = System.nanoTime();
+            aggregate = ParallelRecordAnalyzer.analyze(recordStore);
+            System.out.printf("Analyzed %,d records on %d threads in %.1f ms%n", 
+                    recordStore.size(), ForkJoinPool.getCommonPoolParallelism(),
+                    (System.nanoTime() - start) / 1_000_000.0);
+        }
+    }
+    
+    /**
+     * Summary of all records (complete after finish())
      */
-    public List<MessageRecord> getMessageRecords() {
-        return new ArrayList<>(messageRecords);
+    public MetricsAggregate getAggregate() {
+        return aggregate;
+    }
+    
+    public LatencyHistogram getLatencyHistogram() {
+        return aggregate.getLatencyHistogram();
+    }
+    
+    public RoomIndex getRoomIndex() {
+        return roomIndex;
+    }
+    
+    /**
+     * Per-message records kept in memory (after finish())
+     * @return the off-heap store, or null if records are spilled to a file or disabled
+     */
+    public ColumnarRecordStore getRecordStore() {
+        return recordStore;
+    }
+    
+    /**
+     * Stream every recorded message into a sink (after finish())
+     * @return number of records, 0 if per-message records are disabled
+     */
+    public long replayRecords(RecordSink sink) throws IOException {
+        if (recordStore != null) {
+            return recordStore.replay(sink);
+        }
+        if (spillFile == null) {
+            return 0;
+        }
+        return RecordSpillFile.replay(spillFile.getFilePath(), sink);
     }
     
     /**
-     * Get number of records
+     * Get number of records (after finish())
      */
-    public int getRecordCount() {
-        return messageRecords.size();
+    public long getRecordCount() {
+        return aggregate.getTotalCount();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package com.chatflow.client.metrics;
+
+import com.chatflow.client.model.MessageType;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental, fixed-size summary of all metric records
+ * Counts per room, per message type, per status code and per second, plus a latency
+ * histogram of successful messages. Memory does not grow with the number of records.
+ * Not thread-safe: fed by one thread, then read after the run. Partial aggregates built
+ * on separate threads are combined with merge().
+ */
+public class MetricsAggregate implements RecordSink {
+
+    private static final int MESSAGE_TYPES = MessageType.values().length;
+    // Status codes below this are counted in an array, anything else in a map
+    private static final int STATUS_CODES = 600;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private long totalCount = 0;
+    private long[] roomCounts = new long[32];
+    private final long[] typeCounts = new long[MESSAGE_TYPES];
+    private final long[] statusCounts = new long[STATUS_CODES];
+    private final Map<Integer, Long> otherStatusCounts = new TreeMap<>();
+
+    // Messages per second of send time; secondCounts[i] is second firstSecond + i
+    private long firstSecond = -1;
+    private long[] secondCounts = new long[64];
+
+    @Override
+    public void accept(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        totalCount++;
+
+        if (roomIndex >= roomCounts.length) {
+            roomCounts = Arrays.copyOf(roomCounts, Math.max(roomIndex + 1, roomCounts.length * 2));
+        }
+        roomCounts[roomIndex]++;
+        typeCounts[typeOrdinal]++;
+        if (statusCode >= 0 && statusCode < STATUS_CODES) {
+            statusCounts[statusCode]++;
+        } else {
+            otherStatusCounts.merge(statusCode, 1L, Long::sum);
+        }
+
+        if (statusCode == 200) {
+            latencies.record(latencyNanos);
+        }
+
+        addToSecond(timestamp / 1000, 1);
+    }
+
+    /**
+     * Add all records of another aggregate to this one
+     */
+    public void merge(MetricsAggregate other) {
+        totalCount += other.totalCount;
+        latencies.add(other.latencies);
+
+        if (other.roomCounts.length > roomCounts.length) {
+            roomCounts = Arrays.copyOf(roomCounts, other.roomCounts.length);
+        }
+        for (int i = 0; i < other.roomCounts.length; i++) {
+            roomCounts[i] += other.roomCounts[i];
+        }
+        for (int i = 0; i < MESSAGE_TYPES; i++) {
+            typeCounts[i] += other.typeCounts[i];
+        }
+        for (int i = 0; i < STATUS_CODES; i++) {
+            statusCounts[i] += other.statusCounts[i];
+        }
+        other.otherStatusCounts.forEach((code, count) -> otherStatusCounts.merge(code, count, Long::sum));
+
+        if (other.firstSecond >= 0) {
+            // Extend to the other aggregate's last second first, so the array grows at most twice
+            long[] otherSeconds = other.secondCounts;
+            int last = otherSeconds.length - 1;
+            while (last > 0 && otherSeconds[last] == 0) {
+                last--;
+            }
+            addToSecond(other.firstSecond + last, otherSeconds[last]);
+            for (int i = 0; i < last; i++) {
+                if (otherSeconds[i] != 0) {
+                    addToSecond(other.firstSecond + i, otherSeconds[i]);
+                }
+            }
+        }
+    }
+
+    private void addToSecond(long second, long count) {
+        if (firstSecond < 0) {
+            firstSecond = second;
+        }
+        if (second < firstSecond) {
+            // Records from other threads can be slightly older than the first one seen
+            int shift = (int) (firstSecond - second);
+            long[] shifted = new long[secondCounts.length + shift];
+            System.arraycopy(secondCounts, 0, shifted, shift, secondCounts.length);
+            secondCounts = shifted;
+            firstSecond = second;
+        }
+        int index = (int) (second - firstSecond);
+        if (index >= secondCounts.length) {
+            secondCounts = Arrays.copyOf(secondCounts, Math.max(index + 1, secondCounts.length * 2));
+        }
+        secondCounts[index] += count;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latencies;
+    }
+
+    /**
+     * @return count of records for a room index (see RoomIndex)
+     */
+    public long getRoomCount(int roomIndex) {
+        return roomIndex < roomCounts.length ? roomCounts[roomIndex] : 0;
+    }
+
+    public long getTypeCount(MessageType type) {
+        return typeCounts[type.ordinal()];
+    }
+
+    /**
+     * @return status code -> count, sorted by status code
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>(otherStatusCounts);
+        for (int code = 0; code < STATUS_CODES; code++) {
+            if (statusCounts[code] != 0) {
+                counts.put(code, statusCounts[code]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return epoch second of the first per-second bucket, or -1 if there are no records
+     */
+    public long getFirstSecond() {
+        return firstSecond;
+    }
+
+    /**
+     * @return messages per second of send time, starting at getFirstSecond()
+     */
+    public long[] getSecondCounts() {
+        if (firstSecond < 0) {
+            return new long[0];
+        }
+        int last = secondCounts.length - 1;
+        while (last >= 0 && secondCounts[last] == 0) {
+            last--;
+        }
+        return Arrays.copyOf(secondCounts, last + 1);
+    }
+}
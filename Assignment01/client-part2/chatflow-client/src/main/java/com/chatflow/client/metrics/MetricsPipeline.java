@@ -0,0 +1,110 @@
+package com.chatflow.client.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streaming metrics pipeline
+ * Recording threads append fixed-size primitive records to one of a fixed set of
+ * RecordRings, picked by a hash of the thread ID (no per-message allocation; each ring is
+ * locked only by the threads hashed to it, so contention stays low). The ring count does
+ * not grow with the number of threads, so thousands of short-lived (virtual) threads cost
+ * no extra memory. One background thread drains all rings into the sinks (aggregates,
+ * spill file), so memory stays flat however long the run.
+ */
+public class MetricsPipeline {
+    
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    // Rings: a power of two, about two per core, so few threads share one
+    private static final int MAX_RINGS = 64;
+    
+    private final List<RecordSink> sinks = new CopyOnWriteArrayList<>();
+    private final RecordRing[] rings;
+    private final int ringMask;
+    private final RecordSink fanOut = this::deliver;
+    
+    private final Thread drainThread;
+    private volatile boolean running = true;
+    
+    /**
+     * @param ringCapacity records per ring, a power of two
+     */
+    public MetricsPipeline(int ringCapacity, List<RecordSink> sinks) {
+        int ringCount = Math.min(MAX_RINGS,
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1));
+        this.rings = new RecordRing[ringCount];
+        for (int i = 0; i < ringCount; i++) {
+            rings[i] = new RecordRing(ringCapacity);
+        }
+        this.ringMask = ringCount - 1;
+        this.sinks.addAll(sinks);
+        this.drainThread = new Thread(this::drainLoop, "metrics-drain");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+    
+    /**
+     * Record one message (any thread)
+     */
+    public void record(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        RecordRing ring = rings[ringIndex(Thread.currentThread().getId())];
+        synchronized (ring) {
+            ring.put(timestamp, latencyNanos, statusCode, typeOrdinal, roomIndex);
+        }
+    }
+    
+    /**
+     * Fibonacci hash of the thread ID, so consecutive IDs spread over all rings
+     */
+    private int ringIndex(long threadId) {
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 40) & ringMask;
+    }
+    
+    /**
+     * Stop the drain thread, drain what is left and close the sinks.
+     * Recording threads must be done before this is called.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        drainThread.join();
+        drainAll();
+        for (RecordSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                System.err.println("❌ Error closing metrics sink: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void drainLoop() {
+        while (running) {
+            if (drainAll() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+    
+    private int drainAll() {
+        int drained = 0;
+        for (RecordRing ring : rings) {
+            drained += ring.drainTo(fanOut);
+        }
+        return drained;
+    }
+    
+    private void deliver(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        for (RecordSink sink : sinks) {
+            try {
+                sink.accept(timestamp, latencyNanos, statusCode, typeOrdinal, roomIndex);
+            } catch (RuntimeException e) {
+                // A failing sink (e.g. disk full) is dropped; the others keep receiving records
+                System.err.println("❌ Metrics sink failed and was disabled: " + e.getMessage());
+                sinks.remove(sink);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.chatflow.client.metrics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One-pass, fork/join-parallel analysis of a ColumnarRecordStore
+ * The record range is split in halves until it is at most LEAF_SIZE records; each leaf
+ * folds its slice into its own MetricsAggregate (latency histogram, room, type, status
+ * and per-second counts in a single scan over the primitive columns), and the partial
+ * aggregates are merged on the way back up.
+ */
+public class ParallelRecordAnalyzer extends RecursiveTask<MetricsAggregate> {
+
+    // Large enough that a leaf's scan dwarfs its ~300 KB aggregate
+    private static final long LEAF_SIZE = 1 << 20;
+
+    private final ColumnarRecordStore store;
+    private final long from;
+    private final long to;
+
+    private ParallelRecordAnalyzer(ColumnarRecordStore store, long from, long to) {
+        this.store = store;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Analyze every record of the store on the common fork/join pool
+     */
+    public static MetricsAggregate analyze(ColumnarRecordStore store) {
+        return analyze(store, ForkJoinPool.commonPool());
+    }
+
+    public static MetricsAggregate analyze(ColumnarRecordStore store, ForkJoinPool pool) {
+        return pool.invoke(new ParallelRecordAnalyzer(store, 0, store.size()));
+    }
+
+    @Override
+    protected MetricsAggregate compute() {
+        if (to - from <= LEAF_SIZE) {
+            MetricsAggregate aggregate = new MetricsAggregate();
+            store.replay(aggregate, from, to);
+            return aggregate;
+        }
+
+        long middle = (from + to) >>> 1;
+        ParallelRecordAnalyzer left = new ParallelRecordAnalyzer(store, from, middle);
+        ParallelRecordAnalyzer right = new ParallelRecordAnalyzer(store, middle, to);
+        left.fork();
+        MetricsAggregate result = right.compute();
+        result.merge(left.join());
+        return result;
+    }
+}
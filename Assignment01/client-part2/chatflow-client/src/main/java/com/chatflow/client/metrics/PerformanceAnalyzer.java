@@ -1,28 +1,30 @@
 package com.chatflow.client.metrics;
 
-import com.chatflow.client.model.MessageRecord;
 import com.chatflow.client.model.MessageType;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Performance analyzer for Client Part 2
- * Calculates statistical metrics from message records
+ * Calculates statistical metrics from the aggregated message records
  */
 public class PerformanceAnalyzer {
     
-    private final List<MessageRecord> records;
+    private final MetricsAggregate aggregate;
+    private final RoomIndex roomIndex;
+    private final LatencyHistogram latencies;
     
-    public PerformanceAnalyzer(List<MessageRecord> records) {
-        this.records = records;
+    public PerformanceAnalyzer(MetricsAggregate aggregate, RoomIndex roomIndex) {
+        this.aggregate = aggregate;
+        this.roomIndex = roomIndex;
+        this.latencies = aggregate.getLatencyHistogram();
     }
     
     /**
      * Print all statistical analysis
      */
     public void printStatistics() {
-        if (records.isEmpty()) {
+        if (aggregate.getTotalCount() == 0) {
             System.out.println("No data available for analysis");
             return;
         }
@@ -38,44 +40,35 @@ public class PerformanceAnalyzer {
         // Message type distribution
         printMessageTypeDistribution();
         
+        // Status code counts
+        printStatusCodes();
+        
         System.out.println("===========================================\n");
     }
     
     /**
-     * Print latency statistics - ONLY for measured messages (latency > 0)
+     * Print latency statistics - ONLY for messages with a response (status 200)
+     * Percentiles come from the merged latency histogram (3 significant digits)
      */
     private void printLatencyStatistics() {
-        // Filter out non-measured messages (latency = 0)
-        List<Long> latencies = records.stream()
-            .map(MessageRecord::getLatencyMs)
-            .filter(latency -> latency > 0)  // NEW: Only measured latencies
-            .sorted()
-            .collect(Collectors.toList());
-        
-        if (latencies.isEmpty()) {
+        if (latencies.getTotalCount() == 0) {
             System.out.println("No latency data available");
             return;
         }
         
-        long mean = (long) latencies.stream()
-            .mapToLong(Long::longValue)
-            .average()
-            .orElse(0);
-        
-        long median = getPercentile(latencies, 50);
-        long p95 = getPercentile(latencies, 95);
-        long p99 = getPercentile(latencies, 99);
-        long min = latencies.get(0);
-        long max = latencies.get(latencies.size() - 1);
-        
         System.out.println("Response Time Statistics:");
-        System.out.println("  (Based on " + latencies.size() + " measured samples)");  // NEW
-        System.out.println("  Mean response time: " + mean + " ms");
-        System.out.println("  Median response time: " + median + " ms");
-        System.out.println("  95th percentile: " + p95 + " ms");
-        System.out.println("  99th percentile: " + p99 + " ms");
-        System.out.println("  Min response time: " + min + " ms");
-        System.out.println("  Max response time: " + max + " ms");
+        System.out.println("  (Based on " + latencies.getTotalCount() + " measured samples)");
+        System.out.println("  Mean response time: " + formatMs(latencies.getMeanNanos()) + " ms");
+        System.out.println("  Median response time: " + formatMs(latencies.getValueAtPercentile(50)) + " ms");
+        System.out.println("  95th percentile: " + formatMs(latencies.getValueAtPercentile(95)) + " ms");
+        System.out.println("  99th percentile: " + formatMs(latencies.getValueAtPercentile(99)) + " ms");
+        System.out.println("  99.9th percentile: " + formatMs(latencies.getValueAtPercentile(99.9)) + " ms");
+        System.out.println("  Min response time: " + formatMs(latencies.getMinNanos()) + " ms");
+        System.out.println("  Max response time: " + formatMs(latencies.getMaxNanos()) + " ms");
+    }
+    
+    private static String formatMs(double nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
     }
     
     /**
@@ -84,11 +77,10 @@ public class PerformanceAnalyzer {
     private void printThroughputPerRoom() {
         System.out.println("\n--- Throughput per Room ---");
         
-        Map<String, Long> roomCounts = records.stream()
-            .collect(Collectors.groupingBy(
-                MessageRecord::getRoomId, 
-                Collectors.counting()
-            ));
+        Map<String, Long> roomCounts = new HashMap<>();
+        for (int i = 0; i < roomIndex.size(); i++) {
+            roomCounts.put(roomIndex.roomOf(i), aggregate.getRoomCount(i));
+        }
         
         // Sort by room ID
         roomCounts.entrySet().stream()
@@ -111,13 +103,15 @@ public class PerformanceAnalyzer {
     private void printMessageTypeDistribution() {
         System.out.println("\n--- Message Type Distribution ---");
         
-        Map<MessageType, Long> typeCounts = records.stream()
-            .collect(Collectors.groupingBy(
-                MessageRecord::getMessageType, 
-                Collectors.counting()
-            ));
+        Map<MessageType, Long> typeCounts = new EnumMap<>(MessageType.class);
+        for (MessageType type : MessageType.values()) {
+            long count = aggregate.getTypeCount(type);
+            if (count > 0) {
+                typeCounts.put(type, count);
+            }
+        }
         
-        long total = records.size();
+        long total = aggregate.getTotalCount();
         
         typeCounts.entrySet().stream()
             .sorted(Map.Entry.comparingByKey())
@@ -130,35 +124,31 @@ public class PerformanceAnalyzer {
     }
     
     /**
-     * Calculate percentile from sorted list
+     * Print the number of records per status code (200 success, others errors)
      */
-    private long getPercentile(List<Long> sortedList, int percentile) {
-        if (sortedList.isEmpty()) {
-            return 0;
-        }
+    private void printStatusCodes() {
+        System.out.println("\n--- Status Codes ---");
         
-        int index = (int) Math.ceil(sortedList.size() * percentile / 100.0) - 1;
-        index = Math.max(0, Math.min(index, sortedList.size() - 1));
+        long total = aggregate.getTotalCount();
         
-        return sortedList.get(index);
+        aggregate.getStatusCounts().forEach((code, count) -> 
+            System.out.println("  " + code + ": " + count + " messages (" + 
+                             String.format("%.2f", count * 100.0 / total) + "%)")
+        );
     }
     
     /**
-     * Get latency statistics as map (for testing or external use)
+     * Get latency statistics in milliseconds as map (for testing or external use)
      */
-    public Map<String, Long> getLatencyStatistics() {
-        List<Long> latencies = records.stream()
-            .map(MessageRecord::getLatencyMs)
-            .sorted()
-            .collect(Collectors.toList());
-        
-        Map<String, Long> stats = new HashMap<>();
-        stats.put("mean", (long) latencies.stream().mapToLong(Long::longValue).average().orElse(0));
-        stats.put("median", getPercentile(latencies, 50));
-        stats.put("p95", getPercentile(latencies, 95));
-        stats.put("p99", getPercentile(latencies, 99));
-        stats.put("min", latencies.isEmpty() ? 0 : latencies.get(0));
-        stats.put("max", latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1));
+    public Map<String, Double> getLatencyStatistics() {
+        Map<String, Double> stats = new HashMap<>();
+        stats.put("mean", latencies.getMeanNanos() / 1_000_000.0);
+        stats.put("median", latencies.getValueAtPercentile(50) / 1_000_000.0);
+        stats.put("p95", latencies.getValueAtPercentile(95) / 1_000_000.0);
+        stats.put("p99", latencies.getValueAtPercentile(99) / 1_000_000.0);
+        stats.put("p99.9", latencies.getValueAtPercentile(99.9) / 1_000_000.0);
+        stats.put("min", latencies.getMinNanos() / 1_000_000.0);
+        stats.put("max", latencies.getMaxNanos() / 1_000_000.0);
         
         return stats;
     }
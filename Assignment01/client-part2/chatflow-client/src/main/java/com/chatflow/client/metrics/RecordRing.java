@@ -0,0 +1,69 @@
+package com.chatflow.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer / single-consumer ring buffer of fixed-size primitive metric records
+ * Each record is three longs: timestamp, latencyNanos, and statusCode / type / room packed
+ * together. The producer only blocks (spins) if the consumer falls a full ring behind.
+ * Several producer threads may share a ring as long as they hold its monitor to put().
+ */
+class RecordRing {
+    
+    private static final int LONGS_PER_RECORD = 3;
+    
+    private final long[] slots;
+    private final int capacity;
+    private final int mask;
+    
+    private final AtomicLong head = new AtomicLong(0);   // next record to read, written by consumer
+    private final AtomicLong tail = new AtomicLong(0);   // next record to write, written by producer
+    
+    // Producer's last view of head, refreshed only when the ring looks full
+    private long cachedHead = 0;
+    
+    RecordRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new long[capacity * LONGS_PER_RECORD];
+    }
+    
+    /**
+     * Append a record (one producer at a time)
+     */
+    void put(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        long t = tail.get();
+        while (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                Thread.yield();
+            }
+        }
+        
+        int i = (int) (t & mask) * LONGS_PER_RECORD;
+        slots[i] = timestamp;
+        slots[i + 1] = latencyNanos;
+        slots[i + 2] = ((long) statusCode << 32) | ((long) (typeOrdinal & 0xFF) << 24) | (roomIndex & 0xFFFFFF);
+        tail.lazySet(t + 1);
+    }
+    
+    /**
+     * Hand every published record to the sink (consumer thread only)
+     * @return number of records drained
+     */
+    int drainTo(RecordSink sink) {
+        long h = head.get();
+        long t = tail.get();
+        for (long r = h; r < t; r++) {
+            int i = (int) (r & mask) * LONGS_PER_RECORD;
+            long packed = slots[i + 2];
+            sink.accept(slots[i], slots[i + 1], 
+                    (int) (packed >>> 32), (int) (packed >>> 24) & 0xFF, (int) packed & 0xFFFFFF);
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+}
@@ -0,0 +1,24 @@
+package com.chatflow.client.metrics;
+
+/**
+ * Consumer of per-message metric records, as primitive fields
+ * Sinks are fed by a single thread (the MetricsPipeline drain thread or a replay),
+ * so implementations need no synchronization.
+ */
+public interface RecordSink {
+    
+    /**
+     * @param timestamp    wall-clock send time, epoch millis
+     * @param latencyNanos send-to-response time, 0 when there was no response
+     * @param statusCode   200, 400, 408 or 500
+     * @param typeOrdinal  MessageType ordinal
+     * @param roomIndex    room index from RoomIndex
+     */
+    void accept(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex);
+    
+    /**
+     * Called once after the last record
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatflow.client.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Full-fidelity binary record file written during the run
+ * Fixed 24-byte records (int64 timestamp, int64 latencyNanos, int32 statusCode,
+ * uint8 type ordinal, uint24 room index), written through a direct buffer so the
+ * heap does not grow with the number of messages. replay() streams the file back
+ * into any RecordSink (CSV export, analysis) after the run.
+ */
+public class RecordSpillFile implements RecordSink {
+    
+    public static final int RECORD_SIZE = 24;
+    
+    private static final int BUFFER_SIZE = 1 << 20;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long recordCount = 0;
+    
+    public RecordSpillFile(String filePath) throws IOException {
+        this.path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    @Override
+    public void accept(long timestamp, long latencyNanos, int statusCode, int typeOrdinal, int roomIndex) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        buffer.putLong(timestamp);
+        buffer.putLong(latencyNanos);
+        buffer.putInt(statusCode);
+        buffer.putInt(((typeOrdinal & 0xFF) << 24) | (roomIndex & 0xFFFFFF));
+        recordCount++;
+    }
+    
+    @Override
+    public void close() {
+        try {
+            flush();
+            channel.close();
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing " + path, e);
+        }
+        buffer.clear();
+    }
+    
+    public String getFilePath() {
+        return path.toString();
+    }
+    
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Stream every record of a spill file into a sink, then close the sink
+     * @return number of records replayed
+     */
+    public static long replay(String filePath, RecordSink sink) throws IOException {
+        long count = 0;
+        ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            while (channel.read(in) > 0 || in.position() > 0) {
+                in.flip();
+                while (in.remaining() >= RECORD_SIZE) {
+                    long timestamp = in.getLong();
+                    long latencyNanos = in.getLong();
+                    int statusCode = in.getInt();
+                    int typeAndRoom = in.getInt();
+                    sink.accept(timestamp, latencyNanos, statusCode, 
+                            typeAndRoom >>> 24, typeAndRoom & 0xFFFFFF);
+                    count++;
+                }
+                if (in.hasRemaining() && channel.position() == channel.size()) {
+                    break; // truncated trailing record
+                }
+                in.compact();
+            }
+        }
+        sink.close();
+        return count;
+    }
+}
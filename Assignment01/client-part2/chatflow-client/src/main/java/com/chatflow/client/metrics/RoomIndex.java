@@ -0,0 +1,34 @@
+package com.chatflow.client.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Maps room IDs to small dense indexes so metric records can hold an int instead of a String
+ */
+public class RoomIndex {
+    
+    private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<String> rooms = new CopyOnWriteArrayList<>();
+    
+    public int indexOf(String roomId) {
+        Integer index = indexes.get(roomId);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            return indexes.computeIfAbsent(roomId, k -> {
+                rooms.add(k);
+                return rooms.size() - 1;
+            });
+        }
+    }
+    
+    public String roomOf(int index) {
+        return rooms.get(index);
+    }
+    
+    public int size() {
+        return rooms.size();
+    }
+}
@@ -8,6 +8,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  */
 public class ChatMessage {
     
+    // Client-generated correlation ID, echoed back by the server
+    @JsonProperty("messageId")
+    private long messageId;
+    
     @JsonProperty("userId")
     private String userId;
     
@@ -30,6 +34,10 @@ public class ChatMessage {
     @JsonIgnore
     private long clientSendTimestamp;
     
+    // JSON text frame prepared by the generator, or null to serialize at send time
+    @JsonIgnore
+    private String encodedJson;
+    
     // Constructors
     public ChatMessage() {}
     
@@ -43,6 +51,9 @@ public class ChatMessage {
     }
     
     // Getters and Setters
+    public long getMessageId() { return messageId; }
+    public void setMessageId(long messageId) { this.messageId = messageId; }
+    
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     
@@ -61,6 +72,9 @@ public class ChatMessage {
     public String getRoomId() { return roomId; }
     public void setRoomId(String roomId) { this.roomId = roomId; }
     
+    public String getEncodedJson() { return encodedJson; }
+    public void setEncodedJson(String encodedJson) { this.encodedJson = encodedJson; }
+    
     public long getClientSendTimestamp() { return clientSendTimestamp; }
     public void setClientSendTimestamp(long clientSendTimestamp) { 
         this.clientSendTimestamp = clientSendTimestamp; 
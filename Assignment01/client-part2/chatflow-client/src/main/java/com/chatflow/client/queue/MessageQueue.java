@@ -1,42 +1,119 @@
 package com.chatflow.client.queue;
 
 import com.chatflow.client.model.ChatMessage;
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class MessageQueue {
     
+    // Back-off while the lock-free queue is full / empty: spin, then yield, then park
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
     private final BlockingQueue<ChatMessage> queue;
+    private final MpmcArrayQueue<ChatMessage> lockFreeQueue;
     
     public MessageQueue(int capacity) {
-        this.queue = new LinkedBlockingQueue<>(capacity);
+        this(capacity, false);
+    }
+    
+    /**
+     * @param lockFree true: bounded lock-free array queue (capacity rounded up to a power
+     *                 of two), waits spin/park instead of blocking on a lock;
+     *                 false: LinkedBlockingQueue
+     */
+    public MessageQueue(int capacity, boolean lockFree) {
+        this.queue = lockFree ? null : new LinkedBlockingQueue<>(capacity);
+        this.lockFreeQueue = lockFree ? new MpmcArrayQueue<>(capacity) : null;
     }
     
     public void put(ChatMessage message) throws InterruptedException {
-        queue.put(message);
+        if (lockFreeQueue == null) {
+            queue.put(message);
+            return;
+        }
+        for (int tries = 0; !lockFreeQueue.offer(message); tries++) {
+            backOff(tries);
+        }
     }
     
     public ChatMessage take() throws InterruptedException {
-        return queue.take();
+        if (lockFreeQueue == null) {
+            return queue.take();
+        }
+        ChatMessage message;
+        for (int tries = 0; (message = lockFreeQueue.poll()) == null; tries++) {
+            backOff(tries);
+        }
+        return message;
+    }
+    
+    /**
+     * Poll without waiting
+     * @return the head message, or null if the queue is empty
+     */
+    public ChatMessage poll() {
+        return lockFreeQueue == null ? queue.poll() : lockFreeQueue.poll();
     }
     
     /**
      * Poll with timeout - NEW METHOD
      */
     public ChatMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
-        return queue.poll(timeout, unit);
+        if (lockFreeQueue == null) {
+            return queue.poll(timeout, unit);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ChatMessage message;
+        for (int tries = 0; (message = lockFreeQueue.poll()) == null; tries++) {
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            backOff(tries);
+        }
+        return message;
+    }
+    
+    /**
+     * Move up to maxMessages available messages into target without waiting
+     * (one lock acquisition / one CAS for the whole batch)
+     * @return number of messages moved, 0 if the queue is empty
+     */
+    public int drainTo(Collection<? super ChatMessage> target, int maxMessages) {
+        if (lockFreeQueue == null) {
+            return queue.drainTo(target, maxMessages);
+        }
+        return lockFreeQueue.drainTo(target, maxMessages);
     }
     
     public int size() {
-        return queue.size();
+        return lockFreeQueue == null ? queue.size() : lockFreeQueue.size();
     }
     
     public boolean isEmpty() {
-        return queue.isEmpty();
+        return size() == 0;
     }
     
     public int remainingCapacity() {
-        return queue.remainingCapacity();
+        return lockFreeQueue == null
+                ? queue.remainingCapacity()
+                : lockFreeQueue.capacity() - lockFreeQueue.size();
+    }
+    
+    private static void backOff(int tries) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
     }
-}
\ No newline at end of file
+}
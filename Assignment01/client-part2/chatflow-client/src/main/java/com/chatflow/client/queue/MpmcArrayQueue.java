@@ -0,0 +1,123 @@
+package com.chatflow.client.queue;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer / multi-consumer queue (Vyukov's array queue)
+ * Every slot carries a sequence number telling whether it is ready to be written for
+ * lap n or read for lap n, so producers and consumers claim slots with one CAS on
+ * their own counter and never take a lock or allocate a node. Non-blocking: offer()
+ * fails when full and poll() returns null when empty.
+ */
+class MpmcArrayQueue<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    // Producer and consumer counters (separate objects, so producers and consumers
+    // contend only among themselves)
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong head = new AtomicLong(0);
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    MpmcArrayQueue(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = this.capacity - 1;
+        this.elements = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the queue is full
+     */
+    boolean offer(E element) {
+        long t = tail.get();
+        while (true) {
+            int index = (int) (t & mask);
+            long diff = sequences.get(index) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, t + 1);   // publish to consumers
+                    return true;
+                }
+                t = tail.get();
+            } else if (diff < 0) {
+                return false;                       // slot still holds last lap's element
+            } else {
+                t = tail.get();                     // another producer took this slot
+            }
+        }
+    }
+
+    /**
+     * @return the head element, or null if the queue is empty
+     */
+    E poll() {
+        long h = head.get();
+        while (true) {
+            int index = (int) (h & mask);
+            long diff = sequences.get(index) - (h + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(h, h + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, h + capacity);   // free the slot for the next lap
+                    return element;
+                }
+                h = head.get();
+            } else if (diff < 0) {
+                return null;                              // not yet published
+            } else {
+                h = head.get();
+            }
+        }
+    }
+
+    /**
+     * Move up to maxElements ready elements into target, claiming them with a single CAS
+     * @return number of elements moved
+     */
+    int drainTo(Collection<? super E> target, int maxElements) {
+        while (true) {
+            long h = head.get();
+            // Count the published run starting at head
+            int ready = 0;
+            while (ready < maxElements && sequences.get((int) ((h + ready) & mask)) == h + ready + 1) {
+                ready++;
+            }
+            if (ready == 0) {
+                return 0;
+            }
+            if (head.compareAndSet(h, h + ready)) {
+                for (int i = 0; i < ready; i++) {
+                    int index = (int) ((h + i) & mask);
+                    target.add(elements.get(index));
+                    elements.lazySet(index, null);
+                    sequences.set(index, h + i + capacity);
+                }
+                return ready;
+            }
+        }
+    }
+
+    int size() {
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(capacity, t - h));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,129 @@
+package com.chatflow.client.schedule;
+
+/**
+ * Target send rate over time for the open-loop load mode
+ * Maps the n-th message of a phase (0-based) to the time it is intended to be sent,
+ * as an offset in nanoseconds from the start of the phase.
+ */
+public abstract class RateSchedule {
+    
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    
+    /**
+     * Intended send time of message n, in nanoseconds after the phase start
+     */
+    public abstract long intendedOffsetNanos(long n);
+    
+    /**
+     * Human-readable description for the test report
+     */
+    public abstract String describe();
+    
+    /**
+     * Fixed rate
+     * @param messagesPerSecond target rate, > 0
+     */
+    public static RateSchedule constant(double messagesPerSecond) {
+        requirePositive(messagesPerSecond, "messagesPerSecond");
+        return new RateSchedule() {
+            @Override
+            public long intendedOffsetNanos(long n) {
+                return toNanos(n / messagesPerSecond);
+            }
+            
+            @Override
+            public String describe() {
+                return String.format("constant %.0f msg/sec", messagesPerSecond);
+            }
+        };
+    }
+    
+    /**
+     * Rate rising linearly from startRate to endRate over rampSeconds, then held at endRate
+     */
+    public static RateSchedule ramp(double startRate, double endRate, double rampSeconds) {
+        requirePositive(endRate, "endRate");
+        requirePositive(rampSeconds, "rampSeconds");
+        if (startRate < 0) {
+            throw new IllegalArgumentException("startRate must be >= 0");
+        }
+        double slope = (endRate - startRate) / rampSeconds;           // msg/sec per second
+        double rampMessages = (startRate + endRate) / 2 * rampSeconds;
+        
+        return new RateSchedule() {
+            @Override
+            public long intendedOffsetNanos(long n) {
+                if (n >= rampMessages) {
+                    return toNanos(rampSeconds + (n - rampMessages) / endRate);
+                }
+                if (slope == 0) {
+                    return toNanos(n / startRate);
+                }
+                // n = startRate * t + slope * t^2 / 2, solved for t
+                double t = (-startRate + Math.sqrt(startRate * startRate + 2 * slope * n)) / slope;
+                return toNanos(t);
+            }
+            
+            @Override
+            public String describe() {
+                return String.format("ramp %.0f -> %.0f msg/sec over %.0f s", 
+                        startRate, endRate, rampSeconds);
+            }
+        };
+    }
+    
+    /**
+     * Rate starting at startRate and increased by stepRate every stepSeconds
+     */
+    public static RateSchedule step(double startRate, double stepRate, double stepSeconds) {
+        requirePositive(startRate, "startRate");
+        requirePositive(stepSeconds, "stepSeconds");
+        if (stepRate < 0) {
+            throw new IllegalArgumentException("stepRate must be >= 0");
+        }
+        
+        return new RateSchedule() {
+            // Messages sent before step k starts
+            private double messagesBefore(long k) {
+                return stepSeconds * (k * startRate + stepRate * k * (k - 1) / 2.0);
+            }
+            
+            @Override
+            public long intendedOffsetNanos(long n) {
+                long k;
+                if (stepRate == 0) {
+                    k = (long) (n / (startRate * stepSeconds));
+                } else {
+                    // largest k with messagesBefore(k) <= n
+                    double b = startRate - stepRate / 2;
+                    k = (long) ((-b + Math.sqrt(b * b + 2 * stepRate * n / stepSeconds)) / stepRate);
+                }
+                // correct floating-point rounding at step boundaries
+                while (k > 0 && messagesBefore(k) > n) {
+                    k--;
+                }
+                while (messagesBefore(k + 1) <= n) {
+                    k++;
+                }
+                double t = k * stepSeconds + (n - messagesBefore(k)) / (startRate + k * stepRate);
+                return toNanos(t);
+            }
+            
+            @Override
+            public String describe() {
+                return String.format("step %.0f msg/sec +%.0f every %.0f s", 
+                        startRate, stepRate, stepSeconds);
+            }
+        };
+    }
+    
+    private static long toNanos(double seconds) {
+        return (long) (seconds * NANOS_PER_SECOND);
+    }
+    
+    private static void requirePositive(double value, String name) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException(name + " must be > 0");
+        }
+    }
+}
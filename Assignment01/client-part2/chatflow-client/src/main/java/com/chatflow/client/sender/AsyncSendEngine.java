@@ -0,0 +1,317 @@
+package com.chatflow.client.sender;
+
+import com.chatflow.client.codec.BinaryMessageCodec;
+import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.metrics.DetailedMetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import com.chatflow.client.queue.MessageQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event-driven sender engine
+ * A few event-loop threads drive many virtual users instead of one blocked thread per
+ * sender. Each virtual user is closed-loop with one message outstanding: it takes a
+ * message from the queue, sends it, and is put back on the event loop by the completion
+ * callback that the connection runs from onMessage when the response arrives. No thread
+ * waits: an empty queue re-schedules the user, a response re-submits it, and a user whose
+ * response is overdue (RESPONSE_TIMEOUT_MS) is released by a periodic sweep. Rooms that are
+ * not connected yet are connected on a separate connector pool, and the user resumes on the
+ * event loop when the connect completes. The sweep also stops the phase when the producers
+ * have all finished (or failed) and the queue is empty while messages are still owed,
+ * instead of letting users wait for them forever.
+ * The event loop is created once and reused for every phase.
+ */
+public class AsyncSendEngine {
+
+    private static final long EMPTY_QUEUE_RETRY_MICROS = 200;
+    private static final long SWEEP_INTERVAL_MS = 100;
+
+    private final int threads;
+    private final ScheduledExecutorService eventLoop;
+    // Blocking connects (with their retries and backoff) run here, never on the event loop
+    private final ExecutorService connector;
+    private final DetailedMetricsCollector metricsCollector;
+    private final ConnectionPool connectionPool;
+    private final ObjectMapper objectMapper;
+
+    public AsyncSendEngine(int threads, DetailedMetricsCollector metricsCollector, ConnectionPool connectionPool) {
+        this.threads = threads;
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        this.eventLoop = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "async-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger connectorNumber = new AtomicInteger(0);
+        this.connector = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "async-connect-" + connectorNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.metricsCollector = metricsCollector;
+        this.connectionPool = connectionPool;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    /**
+     * Send totalMessages messages from the queue with virtualUsers concurrent users
+     * Returns when every message has been sent and answered, or its user released
+     * after RESPONSE_TIMEOUT_MS; unanswered messages stay in flight on their connection.
+     * @param producers tasks filling the queue (the generators)
+     * @throws ExecutionException if a producer failed before the phase's messages were generated
+     * @throws IllegalStateException if the producers finished without generating them all
+     */
+    public void runPhase(MessageQueue messageQueue, int totalMessages, int virtualUsers,
+                         List<? extends Future<?>> producers) throws InterruptedException, ExecutionException {
+        Phase phase = new Phase(messageQueue, totalMessages, Math.max(1, Math.min(virtualUsers, totalMessages)),
+                producers);
+        phase.run();
+
+        if (phase.stopped) {
+            int missing = Math.max(0, phase.tickets.get()) + phase.waiting.get();
+            System.out.println("  ❌ Producers stopped with " + missing + " messages not generated: sent=" +
+                             phase.sent.get() + ", failed=" + phase.failed.get());
+            for (Future<?> producer : producers) {
+                producer.get();     // rethrows the producer's failure
+            }
+            throw new IllegalStateException("producers finished " + missing + " messages short");
+        }
+        System.out.println("  ✅ " + phase.users.length + " virtual users on " + threads +
+                         " threads completed: sent=" + phase.sent.get() + ", failed=" + phase.failed.get());
+    }
+
+    public void shutdown() {
+        eventLoop.shutdownNow();
+        connector.shutdownNow();
+    }
+
+    /**
+     * One phase's virtual users and counters
+     */
+    private final class Phase {
+
+        final MessageQueue messageQueue;
+        final List<? extends Future<?>> producers;
+        final VirtualUser[] users;
+        final AtomicInteger tickets;    // messages not yet claimed by a user
+        final AtomicInteger waiting = new AtomicInteger(0);    // claimed, waiting for the queue
+        final AtomicInteger sent = new AtomicInteger(0);
+        final AtomicInteger failed = new AtomicInteger(0);
+        final CountDownLatch usersDone;
+        // Set when no more messages can arrive: users finish instead of waiting for one
+        volatile boolean stopped = false;
+
+        Phase(MessageQueue messageQueue, int totalMessages, int virtualUsers, List<? extends Future<?>> producers) {
+            this.messageQueue = messageQueue;
+            this.producers = producers;
+            this.tickets = new AtomicInteger(totalMessages);
+            this.usersDone = new CountDownLatch(virtualUsers);
+            this.users = new VirtualUser[virtualUsers];
+            for (int i = 0; i < virtualUsers; i++) {
+                users[i] = new VirtualUser(this);
+            }
+        }
+
+        void run() throws InterruptedException {
+            ScheduledFuture<?> sweep = eventLoop.scheduleAtFixedRate(() -> {
+                releaseOverdueUsers();
+                checkProducers();
+            }, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            try {
+                for (VirtualUser user : users) {
+                    eventLoop.execute(user);
+                }
+                usersDone.await();
+            } finally {
+                sweep.cancel(false);
+            }
+        }
+
+        void releaseOverdueUsers() {
+            long now = System.nanoTime();
+            long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(ClientConfig.RESPONSE_TIMEOUT_MS);
+            for (VirtualUser user : users) {
+                long sequence = user.outstanding.get();
+                if (sequence != 0 && now - user.sendNanos > timeoutNanos) {
+                    user.complete(sequence);
+                }
+            }
+        }
+
+        /**
+         * Stop the phase once every producer is done (normally or not) while messages
+         * are still owed and the queue has nothing left for them
+         */
+        void checkProducers() {
+            if (stopped || (tickets.get() <= 0 && waiting.get() == 0)) {
+                return;
+            }
+            for (Future<?> producer : producers) {
+                if (!producer.isDone()) {
+                    return;
+                }
+            }
+            if (messageQueue.isEmpty()) {
+                stopped = true;
+            }
+        }
+    }
+
+    /**
+     * A logical user: runs on whichever event-loop thread it was submitted to, never on
+     * two at once (it is only resubmitted after its outstanding message completes)
+     */
+    private final class VirtualUser implements Runnable {
+
+        private final Phase phase;
+
+        // Sequence number of the message awaiting its response, 0 when none
+        final AtomicLong outstanding = new AtomicLong(0);
+        volatile long sendNanos;
+
+        private long sequence = 0;
+        private boolean holdsTicket = false;
+        // Message taken from the queue, waiting for its room's connection
+        private ChatMessage pendingMessage;
+        private CompletableFuture<ChatWebSocketClient> pendingConnection;
+
+        VirtualUser(Phase phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public void run() {
+            if (pendingMessage != null) {
+                send(pendingMessage);
+                return;
+            }
+            if (!holdsTicket) {
+                if (phase.stopped || phase.tickets.getAndDecrement() <= 0) {
+                    phase.usersDone.countDown();
+                    return;
+                }
+                holdsTicket = true;
+                phase.waiting.incrementAndGet();
+            }
+
+            ChatMessage message = phase.messageQueue.poll();
+            if (message == null) {
+                if (phase.stopped) {
+                    phase.usersDone.countDown();
+                    return;
+                }
+                // Generator behind: try again shortly without holding the thread
+                eventLoop.schedule(this, EMPTY_QUEUE_RETRY_MICROS, TimeUnit.MICROSECONDS);
+                return;
+            }
+            holdsTicket = false;
+            phase.waiting.decrementAndGet();
+            send(message);
+        }
+
+        private void send(ChatMessage message) {
+            CompletableFuture<ChatWebSocketClient> connection = pendingConnection != null
+                    ? pendingConnection
+                    : connectionPool.getConnectionAsync(message.getRoomId(), connector);
+            if (!connection.isDone()) {
+                // Room not connected yet: resume on the event loop once the connect finishes
+                pendingMessage = message;
+                pendingConnection = connection;
+                connection.whenComplete((client, error) -> resume());
+                return;
+            }
+            pendingMessage = null;
+            pendingConnection = null;
+            ChatWebSocketClient client = connection.isCompletedExceptionally() ? null : connection.join();
+
+            // Register before sending: the response can arrive before send returns
+            long current = ++sequence;
+            sendNanos = System.nanoTime();
+            outstanding.set(current);
+
+            if (sendMessage(message, client, () -> complete(current))) {
+                phase.sent.incrementAndGet();
+            } else {
+                phase.failed.incrementAndGet();
+                complete(current);
+            }
+        }
+
+        private void resume() {
+            try {
+                eventLoop.execute(this);
+            } catch (RejectedExecutionException e) {
+                // engine shut down
+            }
+        }
+
+        /**
+         * The message with this sequence number was answered, expired or given up on:
+         * hand the user back to the event loop (only once per message)
+         */
+        void complete(long completed) {
+            if (outstanding.compareAndSet(completed, 0)) {
+                eventLoop.execute(this);
+            }
+        }
+    }
+
+    /**
+     * Send a message without waiting for its response; onComplete runs when the
+     * connection receives the response or expires the message
+     * @param client the room's connection, or null if it could not be connected
+     */
+    private boolean sendMessage(ChatMessage message, ChatWebSocketClient client, Runnable onComplete) {
+        long sendTime = System.currentTimeMillis();
+
+        try {
+            if (client == null) {
+                throw new Exception("Connection failed for room " + message.getRoomId());
+            }
+            boolean sent;
+            if (ClientConfig.USE_BINARY_PROTOCOL) {
+                sent = client.sendTracked(message, BinaryMessageCodec.encode(message), onComplete);
+            } else {
+                String json = message.getEncodedJson();
+                sent = client.sendTracked(message, json != null ? json : objectMapper.writeValueAsString(message),
+                        onComplete);
+            }
+
+            if (!sent) {
+                metricsCollector.recordMessage(
+                    sendTime,
+                    message.getMessageType(),
+                    0,
+                    400,
+                    message.getRoomId()
+                );
+            }
+            return sent;
+
+        } catch (Exception e) {
+            metricsCollector.recordMessage(
+                sendTime,
+                message.getMessageType(),
+                0,
+                500,
+                message.getRoomId()
+            );
+            metricsCollector.incrementReconnections();
+            return false;
+        }
+    }
+}
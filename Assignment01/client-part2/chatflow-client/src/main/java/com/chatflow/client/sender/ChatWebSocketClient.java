@@ -1,69 +1,124 @@
 package com.chatflow.client.sender;
 
+import com.chatflow.client.codec.BinaryMessageCodec;
+import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.metrics.DetailedMetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import org.java_websocket.WebSocketImpl;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
 import org.java_websocket.handshake.ServerHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * WebSocket client with improved latency tracking
+ * WebSocket client with pipelined latency tracking.
+ * Every message carries a messageId that the server echoes back. Sends register the
+ * message in a per-connection in-flight table (messageId -> send time) and return
+ * immediately; the response is matched by messageId on the WebSocket thread, which
+ * records the latency, so any number of messages can be in flight per connection.
+ * With WRITE_BATCH_SIZE > 1, frames are coalesced into batched writes (FrameCoalescer).
  */
 public class ChatWebSocketClient extends WebSocketClient {
     
+    private static final String MESSAGE_ID_FIELD = "\"messageId\":";
+    
     private final CountDownLatch connectLatch = new CountDownLatch(1);
     private volatile boolean isConnected = false;
-    private final AtomicLong lastSendTime = new AtomicLong(0);
-    private final AtomicLong lastLatency = new AtomicLong(0);
-    private final AtomicBoolean lastMessageSuccess = new AtomicBoolean(false);
-    private volatile CountDownLatch responseLatch = null;
     
-    public ChatWebSocketClient(URI serverUri) {
+    private final DetailedMetricsCollector metricsCollector;
+    private final ConcurrentHashMap<Long, InFlightMessage> inFlight = new ConcurrentHashMap<>();
+    
+    // Batches outgoing frames, null when every message is sent with its own write
+    private volatile FrameCoalescer coalescer;
+    
+    public ChatWebSocketClient(URI serverUri, DetailedMetricsCollector metricsCollector) {
         super(serverUri);
+        this.metricsCollector = metricsCollector;
         setConnectionLostTimeout(10);
     }
     
+    private ChatWebSocketClient(URI serverUri, Draft_6455 draft, DetailedMetricsCollector metricsCollector) {
+        super(serverUri, draft);
+        this.metricsCollector = metricsCollector;
+        setConnectionLostTimeout(10);
+    }
+    
+    /**
+     * Client that negotiates the binary frame protocol via WebSocket subprotocol
+     */
+    public static ChatWebSocketClient binary(URI serverUri, DetailedMetricsCollector metricsCollector) {
+        Draft_6455 draft = new Draft_6455(
+                Collections.<IExtension>emptyList(),
+                Collections.<IProtocol>singletonList(new Protocol(BinaryMessageCodec.SUBPROTOCOL)));
+        return new ChatWebSocketClient(serverUri, draft, metricsCollector);
+    }
+    
     @Override
     public void onOpen(ServerHandshake handshake) {
+        // Unbatched send() when the library internals FrameCoalescer needs are not there
+        if (ClientConfig.WRITE_BATCH_SIZE > 1 && FrameCoalescer.isSupported()) {
+            coalescer = new FrameCoalescer((WebSocketImpl) getConnection(),
+                    ClientConfig.WRITE_BATCH_SIZE, ClientConfig.WRITE_LINGER_MICROS);
+        }
         isConnected = true;
         connectLatch.countDown();
     }
     
     @Override
     public void onMessage(String message) {
-        // Calculate latency
-        long receiveTime = System.currentTimeMillis();
-        long sendTime = lastSendTime.get();
+        onResponse(parseMessageId(message), message.contains("SUCCESS"));
+    }
+    
+    /**
+     * Binary protocol response: first byte is the status
+     */
+    @Override
+    public void onMessage(ByteBuffer message) {
+        onResponse(BinaryMessageCodec.messageIdOf(message), BinaryMessageCodec.isSuccess(message));
+    }
+    
+    private void onResponse(long messageId, boolean success) {
+        long receiveNanos = System.nanoTime();
         
-        if (sendTime > 0) {
-            long latency = receiveTime - sendTime;
-            lastLatency.set(latency);
+        // Responses without an ID, or for messages sent by other clients in the room, are ignored
+        InFlightMessage sent = inFlight.remove(messageId);
+        if (sent == null) {
+            return;
         }
         
-        // Check success
-        lastMessageSuccess.set(message.contains("SUCCESS"));
-        
-        // Signal response received
-        if (responseLatch != null) {
-            responseLatch.countDown();
+        metricsCollector.recordMessage(
+            sent.sendTimeMillis,
+            sent.messageType,
+            receiveNanos - sent.sendNanos,
+            success ? 200 : 400,
+            sent.roomId
+        );
+        if (sent.onComplete != null) {
+            sent.onComplete.run();
         }
     }
     
     @Override
     public void onClose(int code, String reason, boolean remote) {
         isConnected = false;
+        // Responses can no longer arrive on this connection
+        expireInFlight(500);
     }
     
     @Override
     public void onError(Exception ex) {
         isConnected = false;
         connectLatch.countDown();
-        if (responseLatch != null) {
-            responseLatch.countDown();
-        }
     }
     
     public boolean awaitConnection(long timeoutMs) {
@@ -76,58 +131,154 @@ public class ChatWebSocketClient extends WebSocketClient {
     }
     
     /**
-     * Send message and wait for response to measure latency
+     * Send a JSON message and track it until its response arrives (does not wait)
+     * @return false if the connection is not open
+     */
+    public boolean sendTracked(ChatMessage message, String json) {
+        return sendTracked(message, json, null, System.nanoTime(), null);
+    }
+    
+    /**
+     * Send a binary protocol frame and track it until its response arrives (does not wait)
+     * @return false if the connection is not open
+     */
+    public boolean sendTracked(ChatMessage message, byte[] binary) {
+        return sendTracked(message, null, binary, System.nanoTime(), null);
+    }
+    
+    /**
+     * Send a JSON message without waiting; onComplete runs on the WebSocket thread when its
+     * response arrives or it expires (timeout, connection closed)
+     * @return false if the connection is not open (onComplete will not run)
      */
-    public boolean sendAndMeasureLatency(String message, long timeoutMs) {
+    public boolean sendTracked(ChatMessage message, String json, Runnable onComplete) {
+        return sendTracked(message, json, null, System.nanoTime(), onComplete);
+    }
+    
+    /**
+     * Send a binary protocol frame without waiting, with a completion callback as above
+     */
+    public boolean sendTracked(ChatMessage message, byte[] binary, Runnable onComplete) {
+        return sendTracked(message, null, binary, System.nanoTime(), onComplete);
+    }
+    
+    /**
+     * Open-loop send: latency is measured from the intended send time (System.nanoTime()
+     * scale) rather than from now, so time spent behind schedule counts as latency
+     */
+    public boolean sendTracked(ChatMessage message, String json, long intendedSendNanos) {
+        return sendTracked(message, json, null, intendedSendNanos, null);
+    }
+    
+    /**
+     * Open-loop send of a binary protocol frame, measured from the intended send time
+     */
+    public boolean sendTracked(ChatMessage message, byte[] binary, long intendedSendNanos) {
+        return sendTracked(message, null, binary, intendedSendNanos, null);
+    }
+    
+    /**
+     * @return true once the message is tracked: its outcome (response or expiry) is recorded
+     *         by this connection; false if it was never tracked and the caller records it
+     */
+    private boolean sendTracked(ChatMessage message, String text, byte[] binary, long sendNanos,
+                                Runnable onComplete) {
         if (!isOpen()) {
             return false;
         }
         
-        // Reset response latch
-        responseLatch = new CountDownLatch(1);
-        lastMessageSuccess.set(false);
-        lastLatency.set(0);
+        // Wall clock time matching sendNanos, for the CSV timestamp
+        long sendTimeMillis = System.currentTimeMillis() - (System.nanoTime() - sendNanos) / 1_000_000;
         
-        // Record send time and send
-        lastSendTime.set(System.currentTimeMillis());
-        send(message);
+        // Register before sending: the response can arrive before send() returns
+        Long messageId = message.getMessageId();
+        inFlight.put(messageId, new InFlightMessage(
+                sendNanos, sendTimeMillis, message.getMessageType(), message.getRoomId(), onComplete));
         
-        // Wait for response
         try {
-            boolean received = responseLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
-            return received && lastMessageSuccess.get();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
+            FrameCoalescer batch = coalescer;
+            if (batch != null) {
+                if (binary != null) {
+                    batch.sendBinary(binary);
+                } else {
+                    batch.sendText(text);
+                }
+            } else if (binary != null) {
+                send(binary);
+            } else {
+                send(text);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // The connection closed under the send: if onClose has already expired the
+            // message (recorded as failed, onComplete run), it must not be reported again
+            return inFlight.remove(messageId) == null;
         }
     }
     
     /**
-     * Get latency of last message
+     * Number of messages sent on this connection still waiting for a response
      */
-    public long getLastLatency() {
-        return lastLatency.get();
+    public int getInFlightCount() {
+        return inFlight.size();
     }
     
     /**
-     * Check if last message was successful
+     * Record every message still in flight as failed with the given status code
+     * @return number of messages expired
      */
-    public boolean wasLastMessageSuccessful() {
-        return lastMessageSuccess.get();
+    public int expireInFlight(int statusCode) {
+        int expired = 0;
+        for (Map.Entry<Long, InFlightMessage> entry : inFlight.entrySet()) {
+            InFlightMessage sent = inFlight.remove(entry.getKey());
+            if (sent == null) {
+                continue; // response arrived meanwhile
+            }
+            metricsCollector.recordMessage(
+                sent.sendTimeMillis,
+                sent.messageType,
+                0,
+                statusCode,
+                sent.roomId
+            );
+            if (sent.onComplete != null) {
+                sent.onComplete.run();
+            }
+            expired++;
+        }
+        return expired;
     }
     
     public boolean isConnected() {
         return isConnected && isOpen();
     }
-
+    
     /**
-     * Fast send without waiting for response (for non-sampled messages)
+     * Extract the echoed messageId from a JSON response.
+     * The field name can only match outside string values: inside a JSON string its
+     * quotes would be escaped.
+     * @return the messageId, or BinaryMessageCodec.NO_MESSAGE_ID if absent
      */
-    public boolean sendMessageFast(String message) {
-        if (isOpen()) {
-            send(message);
-            return true;
+    static long parseMessageId(String response) {
+        int i = response.indexOf(MESSAGE_ID_FIELD);
+        if (i < 0) {
+            return BinaryMessageCodec.NO_MESSAGE_ID;
+        }
+        i += MESSAGE_ID_FIELD.length();
+        int length = response.length();
+        while (i < length && (response.charAt(i) == ' ' || response.charAt(i) == '"')) {
+            i++;
+        }
+        
+        long value = 0;
+        int digits = 0;
+        for (; i < length; i++, digits++) {
+            char c = response.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
         }
-        return false;
+        return digits > 0 ? value : BinaryMessageCodec.NO_MESSAGE_ID;
     }
-}
\ No newline at end of file
+}
@@ -1,64 +1,229 @@
 package com.chatflow.client.sender;
 
-import java.util.concurrent.atomic.AtomicInteger;
 import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.metrics.DetailedMetricsCollector;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Connection pool - maintains one connection per room
- * Reuses connections to avoid connection overhead
+ * Connection pool - maintains CONNECTIONS_PER_ROOM connections per room
+ * Reuses connections to avoid connection overhead. With several connections per room,
+ * senders are spread over them by the configured Selection, so they don't all serialize
+ * on one socket's write lock.
  */
 public class ConnectionPool {
     
-    private final ConcurrentHashMap<String, ChatWebSocketClient> connections;
+    /**
+     * How a sender picks one of a room's connections
+     */
+    public enum Selection {
+        ROUND_ROBIN,        // next connection in turn
+        LEAST_IN_FLIGHT,    // connection with the fewest messages awaiting a response
+        THREAD_AFFINITY     // always the same connection for the same sender thread
+    }
+    
+    private final ConcurrentHashMap<String, RoomConnections> connections;
     
     private final AtomicInteger totalConnectionsCreated;
+    
+    // Receives the latency of every response matched on a pooled connection
+    private final DetailedMetricsCollector metricsCollector;
+    
+    private final int connectionsPerRoom;
+    private final Selection selection;
 
-    public ConnectionPool() {
+    public ConnectionPool(DetailedMetricsCollector metricsCollector) {
+        this(metricsCollector, ClientConfig.CONNECTIONS_PER_ROOM, ClientConfig.CONNECTION_SELECTION);
+    }
+    
+    public ConnectionPool(DetailedMetricsCollector metricsCollector, int connectionsPerRoom, Selection selection) {
+        if (connectionsPerRoom < 1) {
+            throw new IllegalArgumentException("At least one connection per room required: " + connectionsPerRoom);
+        }
+        this.metricsCollector = metricsCollector;
+        this.connectionsPerRoom = connectionsPerRoom;
+        this.selection = selection;
         this.connections = new ConcurrentHashMap<>();
         this.totalConnectionsCreated = new AtomicInteger(0);
     }
     
     /**
-     * Get or create connection for a room
+     * Get or create a connection for a room
+     * Only one thread (re)connects a given slot at a time; the others wait for its result
+     * instead of opening their own sockets.
      */
     public ChatWebSocketClient getConnection(String roomId) throws Exception {
-        // Check if we already have a connection for this room
-        ChatWebSocketClient client = connections.get(roomId);
+        RoomConnections room = connections.computeIfAbsent(roomId, id -> new RoomConnections(connectionsPerRoom));
+        int slot = room.select(selection);
+        
+        // Check if we already have a connection in this slot
+        ChatWebSocketClient client = room.clients.get(slot);
         
         if (client != null && client.isConnected()) {
             return client; // Reuse existing connection
         }
         
-        // Create new connection
-        URI serverUri = URI.create(ClientConfig.SERVER_URL + roomId);
-        client = new ChatWebSocketClient(serverUri);
+        CompletableFuture<ChatWebSocketClient> pending = new CompletableFuture<>();
+        CompletableFuture<ChatWebSocketClient> inProgress = room.connecting.compareAndExchange(slot, null, pending);
+        if (inProgress != null) {
+            return await(inProgress, roomId);
+        }
+        return connectSlot(room, slot, roomId, pending);
+    }
+    
+    /**
+     * Non-blocking getConnection, for callers that must not wait (event loops)
+     * @param connector runs the connect if one is needed; a connect of the same slot already
+     *                  in progress is shared instead
+     * @return the connection, completed at once when the selected slot is connected;
+     *         completed exceptionally if the connect fails or the connector rejects it
+     */
+    public CompletableFuture<ChatWebSocketClient> getConnectionAsync(String roomId, Executor connector) {
+        RoomConnections room = connections.computeIfAbsent(roomId, id -> new RoomConnections(connectionsPerRoom));
+        int slot = room.select(selection);
         
-        client.connect();
+        ChatWebSocketClient client = room.clients.get(slot);
+        if (client != null && client.isConnected()) {
+            return CompletableFuture.completedFuture(client);
+        }
         
-        // Wait for connection to establish
-        if (!client.awaitConnection(ClientConfig.CONNECTION_TIMEOUT_MS)) {
-            throw new Exception("Connection timeout for room " + roomId);
+        CompletableFuture<ChatWebSocketClient> pending = new CompletableFuture<>();
+        CompletableFuture<ChatWebSocketClient> inProgress = room.connecting.compareAndExchange(slot, null, pending);
+        if (inProgress != null) {
+            return inProgress;
+        }
+        try {
+            connector.execute(() -> {
+                try {
+                    connectSlot(room, slot, roomId, pending);
+                } catch (Exception e) {
+                    // reported through pending
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Connector shut down: release the slot so later callers don't wait on a connect that never runs
+            room.connecting.compareAndSet(slot, pending, null);
+            pending.completeExceptionally(e);
+        }
+        return pending;
+    }
+    
+    /**
+     * (Re)connect a slot whose connect this thread claimed, completing pending with the result
+     */
+    private ChatWebSocketClient connectSlot(RoomConnections room, int slot, String roomId,
+                                            CompletableFuture<ChatWebSocketClient> pending) throws Exception {
+        try {
+            // Another thread may have finished connecting this slot since the caller's check
+            ChatWebSocketClient client = room.clients.get(slot);
+            if (client == null || !client.isConnected()) {
+                client = connectWithRetry(roomId);
+                
+                // Store in pool, closing the dead client it replaces
+                ChatWebSocketClient superseded = room.clients.getAndSet(slot, client);
+                if (superseded != null) {
+                    superseded.close();
+                }
+            }
+            pending.complete(client);
+            return client;
+            
+        } catch (Exception e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            room.connecting.set(slot, null);
         }
+    }
+    
+    private static ChatWebSocketClient await(CompletableFuture<ChatWebSocketClient> inProgress, String roomId)
+            throws Exception {
+        try {
+            return inProgress.get();
+        } catch (ExecutionException e) {
+            throw new Exception("Connection failed for room " + roomId, e.getCause());
+        }
+    }
+    
+    /**
+     * Open a connection, retrying up to MAX_RETRIES times with exponential backoff
+     * (INITIAL_BACKOFF_MS, doubling) and jitter, so that rooms reconnecting after a
+     * server restart don't all retry at the same moment
+     */
+    private ChatWebSocketClient connectWithRetry(String roomId) throws Exception {
+        URI serverUri = URI.create(ClientConfig.SERVER_URL + roomId);
+        long backoffMs = ClientConfig.INITIAL_BACKOFF_MS;
         
-        // Store in pool
-        connections.put(roomId, client);
-
-        connections.put(roomId, client);
-        totalConnectionsCreated.incrementAndGet(); // NEW: Count new connection
+        for (int attempt = 1; ; attempt++) {
+            // Create new connection
+            ChatWebSocketClient client = ClientConfig.USE_BINARY_PROTOCOL
+                    ? ChatWebSocketClient.binary(serverUri, metricsCollector)
+                    : new ChatWebSocketClient(serverUri, metricsCollector);
+            
+            client.connect();
+            
+            // Wait for connection to establish (the latch is also released by a failed handshake)
+            if (client.awaitConnection(ClientConfig.CONNECTION_TIMEOUT_MS) && client.isConnected()) {
+                totalConnectionsCreated.incrementAndGet();
+                return client;
+            }
+            client.close();
+            
+            if (attempt >= ClientConfig.MAX_RETRIES) {
+                throw new Exception("Connection failed for room " + roomId + " after " + attempt + " attempts");
+            }
+            
+            // Half the backoff fixed, half random
+            Thread.sleep(backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1));
+            backoffMs *= 2;
+        }
+    }
+    
+    /**
+     * Wait until every sent message has had its response, up to timeoutMs,
+     * then record whatever is still in flight as timed out (status 408)
+     * @return number of messages that timed out
+     */
+    public int awaitInFlight(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
         
-        return client;
+        int timedOut = 0;
+        for (ChatWebSocketClient client : allConnections()) {
+            timedOut += client.expireInFlight(408);
+        }
+        return timedOut;
+    }
+    
+    /**
+     * Messages sent on pooled connections still waiting for a response
+     */
+    public int getInFlightCount() {
+        int count = 0;
+        for (ChatWebSocketClient client : allConnections()) {
+            count += client.getInFlightCount();
+        }
+        return count;
     }
     
     /**
      * Close all connections
      */
     public void closeAll() {
-        for (ChatWebSocketClient client : connections.values()) {
-            if (client != null && client.isOpen()) {
+        for (ChatWebSocketClient client : allConnections()) {
+            if (client.isOpen()) {
                 client.close();
             }
         }
@@ -70,8 +235,8 @@ public class ConnectionPool {
      */
     public int getActiveConnectionCount() {
         int count = 0;
-        for (ChatWebSocketClient client : connections.values()) {
-            if (client != null && client.isConnected()) {
+        for (ChatWebSocketClient client : allConnections()) {
+            if (client.isConnected()) {
                 count++;
             }
         }
@@ -84,4 +249,65 @@ public class ConnectionPool {
     public int getTotalConnectionsCreated() {
         return totalConnectionsCreated.get();
     }
+    
+    /**
+     * Current connection of every room slot
+     */
+    private List<ChatWebSocketClient> allConnections() {
+        List<ChatWebSocketClient> clients = new ArrayList<>();
+        for (RoomConnections room : connections.values()) {
+            for (int i = 0; i < room.clients.length(); i++) {
+                ChatWebSocketClient client = room.clients.get(i);
+                if (client != null) {
+                    clients.add(client);
+                }
+            }
+        }
+        return clients;
+    }
+    
+    /**
+     * One room's connection slots
+     */
+    private static class RoomConnections {
+        
+        final AtomicReferenceArray<ChatWebSocketClient> clients;
+        // Connect in progress per slot, awaited by the threads that didn't start it
+        final AtomicReferenceArray<CompletableFuture<ChatWebSocketClient>> connecting;
+        final AtomicInteger nextSlot = new AtomicInteger(0);
+        
+        RoomConnections(int size) {
+            this.clients = new AtomicReferenceArray<>(size);
+            this.connecting = new AtomicReferenceArray<>(size);
+        }
+        
+        int select(Selection selection) {
+            int size = clients.length();
+            if (size == 1) {
+                return 0;
+            }
+            switch (selection) {
+                case THREAD_AFFINITY:
+                    return (int) (Thread.currentThread().getId() % size);
+                case LEAST_IN_FLIGHT:
+                    int best = 0;
+                    int bestInFlight = Integer.MAX_VALUE;
+                    for (int i = 0; i < size; i++) {
+                        ChatWebSocketClient client = clients.get(i);
+                        if (client == null || !client.isConnected()) {
+                            return i; // open the missing connection first
+                        }
+                        int inFlight = client.getInFlightCount();
+                        if (inFlight < bestInFlight) {
+                            best = i;
+                            bestInFlight = inFlight;
+                        }
+                    }
+                    return best;
+                case ROUND_ROBIN:
+                default:
+                    return Math.floorMod(nextSlot.getAndIncrement(), size);
+            }
+        }
+    }
 }
\ No newline at end of file
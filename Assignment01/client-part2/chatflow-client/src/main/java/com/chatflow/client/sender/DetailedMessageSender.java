@@ -1,16 +1,20 @@
 package com.chatflow.client.sender;
 
+import com.chatflow.client.codec.BinaryMessageCodec;
 import com.chatflow.client.config.ClientConfig;
 import com.chatflow.client.model.ChatMessage;
 import com.chatflow.client.queue.MessageQueue;
 import com.chatflow.client.metrics.DetailedMetricsCollector;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.ArrayDeque;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Detailed Message Sender with sampling strategy
- * Measures latency for 10% of messages, fast-sends the rest
+ * Detailed Message Sender
+ * Sends every message without blocking; latency of each one is measured
+ * by its connection when the response with the same messageId arrives
  */
 public class DetailedMessageSender implements Runnable {
     
@@ -20,9 +24,6 @@ public class DetailedMessageSender implements Runnable {
     private final int messagesToSend;
     private final ObjectMapper objectMapper;
     
-    // Sampling: measure latency for every Nth message
-    private static final int LATENCY_SAMPLE_RATE = 20; // 5% sampling
-    
     public DetailedMessageSender(MessageQueue messageQueue, 
                                 DetailedMetricsCollector metricsCollector,
                                 ConnectionPool connectionPool,
@@ -38,20 +39,25 @@ public class DetailedMessageSender implements Runnable {
     public void run() {
         int sent = 0;
         int failed = 0;
+        // Messages taken from the queue but not sent yet, refilled in batches
+        ArrayDeque<ChatMessage> batch = new ArrayDeque<>(ClientConfig.SENDER_BATCH_SIZE);
         
         try {
             for (int i = 0; i < messagesToSend; i++) {
-                ChatMessage message = messageQueue.poll(30, TimeUnit.SECONDS);
+                ChatMessage message = batch.poll();
+                if (message == null) {
+                    int wanted = Math.min(ClientConfig.SENDER_BATCH_SIZE, messagesToSend - i);
+                    message = messageQueue.drainTo(batch, wanted) > 0
+                            ? batch.poll()
+                            : messageQueue.poll(30, TimeUnit.SECONDS);
+                }
                 
                 if (message == null) {
                     System.err.println("  ⚠️  Thread timeout waiting for message");
                     break;
                 }
                 
-                // Sampling: measure latency for every 10th message
-                boolean measureLatency = (i % LATENCY_SAMPLE_RATE == 0);
-                
-                boolean success = sendMessage(message, measureLatency);
+                boolean success = sendMessage(message);
                 
                 if (success) {
                     sent++;
@@ -69,45 +75,28 @@ public class DetailedMessageSender implements Runnable {
     }
     
     /**
-     * Send message with optional latency measurement
+     * Send a message without waiting for its response.
+     * The connection tracks it by messageId and records its latency when the response arrives.
      */
-    private boolean sendMessage(ChatMessage message, boolean measureLatency) {
+    private boolean sendMessage(ChatMessage message) {
         long sendTime = System.currentTimeMillis();
         
         try {
             ChatWebSocketClient client = connectionPool.getConnection(message.getRoomId());
-            String jsonMessage = objectMapper.writeValueAsString(message);
+            boolean sent = ClientConfig.USE_BINARY_PROTOCOL
+                    ? client.sendTracked(message, BinaryMessageCodec.encode(message))
+                    : client.sendTracked(message, toJson(message));
             
-            if (measureLatency) {
-                // Wait for response and measure latency
-                boolean success = client.sendAndMeasureLatency(jsonMessage, 3000);
-                long latency = client.getLastLatency();
-                
-                metricsCollector.recordMessage(
-                    sendTime,
-                    message.getMessageType(),
-                    latency,
-                    success ? 200 : 400,
-                    message.getRoomId()
-                );
-                
-                return success;
-                
-            } else {
-                // Fast send without waiting for response
-                boolean sent = client.sendMessageFast(jsonMessage);
-                
-                // Record to CSV with latency = 0 (not measured)
+            if (!sent) {
                 metricsCollector.recordMessage(
                     sendTime,
                     message.getMessageType(),
-                    0,  // latency not measured for fast-send messages
-                    sent ? 200 : 400,
+                    0,
+                    400,
                     message.getRoomId()
                 );
-                
-                return sent;
             }
+            return sent;
             
         } catch (Exception e) {
             metricsCollector.recordMessage(
@@ -121,4 +110,12 @@ public class DetailedMessageSender implements Runnable {
             return false;
         }
     }
+    
+    /**
+     * JSON text frame: the generator's pre-encoded JSON if present, else serialized now
+     */
+    private String toJson(ChatMessage message) throws JsonProcessingException {
+        String json = message.getEncodedJson();
+        return json != null ? json : objectMapper.writeValueAsString(message);
+    }
 }
\ No newline at end of file
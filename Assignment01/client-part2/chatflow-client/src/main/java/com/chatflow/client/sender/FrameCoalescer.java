@@ -0,0 +1,233 @@
+package com.chatflow.client.sender;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write coalescing for one connection
+ * Java-WebSocket's write thread takes one buffer at a time from the connection's outQueue
+ * and writes and flushes it to the socket, so send() per message costs a queue hand-off,
+ * a write-thread wake-up and a socket write each. Here messages are encoded as masked
+ * client WebSocket frames (RFC 6455) into one buffer, which is handed to the outQueue as
+ * a single write once batchSize frames are collected, or lingerMicros after the batch's
+ * first frame, whichever comes first.
+ * The batch is enqueued the way WebSocketImpl's own send() does it: only while the
+ * connection is open, and under the connection's write lock, so it never lands between
+ * the buffers of a library write. A batch flushed after the connection has left OPEN
+ * is dropped; its messages are expired by ChatWebSocketClient.onClose.
+ * The write lock is a private field of WebSocketImpl (Java-WebSocket 1.5.x, pinned in
+ * pom.xml). If it cannot be found, isSupported() is false and connections send unbatched.
+ */
+public final class FrameCoalescer {
+
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+    private static final int MAX_HEADER_SIZE = 14;   // 2 + 8 byte length + 4 byte mask
+    private static final int INITIAL_CAPACITY = 4096;
+
+    // One timer for all connections, flushing batches whose linger time is up
+    private static final ScheduledExecutorService LINGER_TIMER =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ws-write-linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // WebSocketImpl.synchronizeWriteObject, the lock its write() holds while adding to outQueue;
+    // null if this Java-WebSocket version has no such field
+    private static final Field WRITE_LOCK = writeLockField();
+
+    // Across all connections, for the average batch size
+    private static final LongAdder FRAMES_WRITTEN = new LongAdder();
+    private static final LongAdder WRITES = new LongAdder();
+
+    private final WebSocketImpl connection;
+    private final Object writeLock;
+    private final int batchSize;
+    private final long lingerNanos;
+    // The connection's one linger task: scheduled at most once at a time and reused
+    private final Runnable lingerFlush = this::flushLingering;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length = 0;
+    private int frames = 0;
+    private long batchStartNanos;
+    private boolean lingerScheduled = false;
+
+    FrameCoalescer(WebSocketImpl connection, int batchSize, long lingerMicros) {
+        this.connection = connection;
+        this.writeLock = writeLockOf(connection);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+    }
+
+    /**
+     * @throws WebsocketNotConnectedException if the connection is not open, like WebSocketImpl.send
+     */
+    synchronized void sendText(String text) {
+        addFrame(OPCODE_TEXT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws WebsocketNotConnectedException if the connection is not open, like WebSocketImpl.send
+     */
+    synchronized void sendBinary(byte[] payload) {
+        addFrame(OPCODE_BINARY, payload);
+    }
+
+    private void addFrame(int opcode, byte[] payload) {
+        if (!connection.isOpen()) {
+            throw new WebsocketNotConnectedException();
+        }
+        if (length + MAX_HEADER_SIZE + payload.length > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, length + MAX_HEADER_SIZE + payload.length)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+        length = writeFrame(buffer, length, opcode, payload);
+        frames++;
+
+        if (frames >= batchSize) {
+            flush();
+        } else if (frames == 1) {
+            batchStartNanos = System.nanoTime();
+            if (!lingerScheduled) {
+                scheduleLinger(lingerNanos);
+            }
+        }
+    }
+
+    private void scheduleLinger(long delayNanos) {
+        lingerScheduled = true;
+        LINGER_TIMER.schedule(lingerFlush, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The linger task: flush the current batch once its first frame is lingerNanos old.
+     * A task left pending by a batch that was flushed full is reused for the next batch.
+     */
+    private synchronized void flushLingering() {
+        lingerScheduled = false;
+        if (frames == 0) {
+            return;
+        }
+        long remaining = batchStartNanos + lingerNanos - System.nanoTime();
+        if (remaining > 0) {
+            scheduleLinger(remaining);
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Hand the collected frames to the write thread as one buffer
+     */
+    synchronized void flush() {
+        if (frames == 0) {
+            return;
+        }
+        // The write thread reads the array later: hand it over and start a new one
+        synchronized (writeLock) {
+            if (connection.isOpen()) {
+                connection.outQueue.add(ByteBuffer.wrap(buffer, 0, length));
+                FRAMES_WRITTEN.add(frames);
+                WRITES.increment();
+            }
+        }
+
+        buffer = new byte[buffer.length];
+        length = 0;
+        frames = 0;
+    }
+
+    /**
+     * Whether batches can be enqueued under the library's write lock; when false,
+     * coalescing must not be used (no other lock keeps them apart from library frames)
+     */
+    public static boolean isSupported() {
+        return WRITE_LOCK != null;
+    }
+
+    private static Field writeLockField() {
+        try {
+            Field field = WebSocketImpl.class.getDeclaredField("synchronizeWriteObject");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("  ⚠️  Write coalescing disabled: WebSocketImpl.synchronizeWriteObject " +
+                    "not accessible (" + e + "); expected Java-WebSocket 1.5.x");
+            return null;
+        }
+    }
+
+    /**
+     * The connection's write lock
+     * @throws IllegalStateException if it is not available (see isSupported())
+     */
+    private static Object writeLockOf(WebSocketImpl connection) {
+        if (WRITE_LOCK == null) {
+            throw new IllegalStateException("WebSocketImpl write lock not available");
+        }
+        try {
+            return WRITE_LOCK.get(connection);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("WebSocketImpl write lock not available", e);
+        }
+    }
+
+    /**
+     * Encode a single-fragment, masked client frame at out[position]
+     * @return position after the frame
+     */
+    static int writeFrame(byte[] out, int position, int opcode, byte[] payload) {
+        int size = payload.length;
+        out[position++] = (byte) (0x80 | opcode);   // FIN
+        if (size < 126) {
+            out[position++] = (byte) (0x80 | size);
+        } else if (size <= 0xFFFF) {
+            out[position++] = (byte) (0x80 | 126);
+            out[position++] = (byte) (size >>> 8);
+            out[position++] = (byte) size;
+        } else {
+            out[position++] = (byte) (0x80 | 127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out[position++] = (byte) ((long) size >>> shift);
+            }
+        }
+
+        int mask = ThreadLocalRandom.current().nextInt();
+        int maskStart = position;
+        out[position++] = (byte) (mask >>> 24);
+        out[position++] = (byte) (mask >>> 16);
+        out[position++] = (byte) (mask >>> 8);
+        out[position++] = (byte) mask;
+
+        for (int i = 0; i < size; i++) {
+            out[position + i] = (byte) (payload[i] ^ out[maskStart + (i & 3)]);
+        }
+        return position + size;
+    }
+
+    /**
+     * Frames written through coalescers so far, on all connections
+     */
+    public static long getFramesWritten() {
+        return FRAMES_WRITTEN.sum();
+    }
+
+    /**
+     * Buffers handed to the write threads so far, on all connections
+     */
+    public static long getWrites() {
+        return WRITES.sum();
+    }
+}
@@ -0,0 +1,24 @@
+package com.chatflow.client.sender;
+
+import com.chatflow.client.model.MessageType;
+
+/**
+ * A message sent on a connection whose response has not arrived yet
+ */
+class InFlightMessage {
+    
+    final long sendNanos;         // System.nanoTime() at send, for latency
+    final long sendTimeMillis;    // wall clock at send, for the CSV timestamp
+    final MessageType messageType;
+    final String roomId;
+    final Runnable onComplete;    // run once the response arrives or the message expires, may be null
+    
+    InFlightMessage(long sendNanos, long sendTimeMillis, MessageType messageType, String roomId,
+                    Runnable onComplete) {
+        this.sendNanos = sendNanos;
+        this.sendTimeMillis = sendTimeMillis;
+        this.messageType = messageType;
+        this.roomId = roomId;
+        this.onComplete = onComplete;
+    }
+}
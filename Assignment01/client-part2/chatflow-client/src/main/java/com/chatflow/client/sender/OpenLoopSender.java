@@ -0,0 +1,182 @@
+package com.chatflow.client.sender;
+
+import com.chatflow.client.codec.BinaryMessageCodec;
+import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.metrics.DetailedMetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import com.chatflow.client.queue.MessageQueue;
+import com.chatflow.client.schedule.RateSchedule;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop message sender
+ * All senders of a phase share one ticket counter: ticket n is sent at the time the
+ * RateSchedule intends for message n, whether or not earlier messages were answered.
+ * A sender that falls behind sends immediately, and latency is measured from the
+ * intended send time, so server stalls show up as latency instead of reducing the
+ * offered load (coordinated omission).
+ */
+public class OpenLoopSender implements Runnable {
+    
+    /**
+     * Schedule state shared by the senders of one phase
+     */
+    public static class Schedule {
+        private final RateSchedule rateSchedule;
+        private final long totalMessages;
+        private final AtomicLong nextTicket = new AtomicLong(0);
+        private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder lateSends = new LongAdder();
+        private volatile long startNanos;
+        
+        public Schedule(RateSchedule rateSchedule, long totalMessages) {
+            this.rateSchedule = rateSchedule;
+            this.totalMessages = totalMessages;
+        }
+        
+        /**
+         * Fix time zero of the schedule; call just before starting the senders
+         */
+        public void start() {
+            startNanos = System.nanoTime();
+        }
+        
+        /** Longest delay of an actual send behind its intended time */
+        public long getMaxLagNanos() { return maxLagNanos.get(); }
+        
+        /** Sends more than 1 ms behind their intended time */
+        public long getLateSends() { return lateSends.sum(); }
+        
+        /**
+         * Claim the next message of the phase
+         * @return its ticket (message number), or -1 when all messages are claimed
+         */
+        long nextTicket() {
+            long ticket = nextTicket.getAndIncrement();
+            return ticket < totalMessages ? ticket : -1;
+        }
+        
+        /**
+         * Wait until the intended send time of a ticket and record how late we are
+         * @return the intended send time, System.nanoTime() scale
+         */
+        long awaitSendTime(long ticket) {
+            long intendedNanos = startNanos + rateSchedule.intendedOffsetNanos(ticket);
+            waitUntil(intendedNanos);
+            
+            long lag = System.nanoTime() - intendedNanos;
+            if (lag > LATE_THRESHOLD_NANOS) {
+                lateSends.increment();
+            }
+            maxLagNanos.accumulate(lag);
+            return intendedNanos;
+        }
+    }
+    
+    private static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final Schedule schedule;
+    private final MessageQueue messageQueue;
+    private final DetailedMetricsCollector metricsCollector;
+    private final ConnectionPool connectionPool;
+    private final ObjectMapper objectMapper;
+    
+    public OpenLoopSender(Schedule schedule,
+                          MessageQueue messageQueue,
+                          DetailedMetricsCollector metricsCollector,
+                          ConnectionPool connectionPool) {
+        this.schedule = schedule;
+        this.messageQueue = messageQueue;
+        this.metricsCollector = metricsCollector;
+        this.connectionPool = connectionPool;
+        this.objectMapper = new ObjectMapper();
+    }
+    
+    @Override
+    public void run() {
+        int sent = 0;
+        int failed = 0;
+        
+        try {
+            long ticket;
+            while ((ticket = schedule.nextTicket()) >= 0) {
+                ChatMessage message = messageQueue.poll(30, TimeUnit.SECONDS);
+                
+                if (message == null) {
+                    System.err.println("  ⚠️  Thread timeout waiting for message");
+                    break;
+                }
+                
+                long intendedNanos = schedule.awaitSendTime(ticket);
+                
+                if (sendMessage(message, intendedNanos)) {
+                    sent++;
+                } else {
+                    failed++;
+                }
+            }
+            
+        } catch (Exception e) {
+            System.err.println("  ❌ Thread error: " + e.getMessage());
+        }
+        
+        System.out.println("  ✅ Thread " + Thread.currentThread().getName() + 
+                         " completed: sent=" + sent + ", failed=" + failed);
+    }
+    
+    private static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+    
+    /**
+     * Send without waiting for the response; latency is recorded from intendedNanos
+     */
+    private boolean sendMessage(ChatMessage message, long intendedNanos) {
+        try {
+            ChatWebSocketClient client = connectionPool.getConnection(message.getRoomId());
+            boolean sent = ClientConfig.USE_BINARY_PROTOCOL
+                    ? client.sendTracked(message, BinaryMessageCodec.encode(message), intendedNanos)
+                    : client.sendTracked(message, toJson(message), intendedNanos);
+            
+            if (!sent) {
+                metricsCollector.recordMessage(
+                    System.currentTimeMillis(),
+                    message.getMessageType(),
+                    0,
+                    400,
+                    message.getRoomId()
+                );
+            }
+            return sent;
+            
+        } catch (Exception e) {
+            metricsCollector.recordMessage(
+                System.currentTimeMillis(),
+                message.getMessageType(),
+                0,
+                500,
+                message.getRoomId()
+            );
+            metricsCollector.incrementReconnections();
+            return false;
+        }
+    }
+    
+    /**
+     * JSON text frame: the generator's pre-encoded JSON if present, else serialized now
+     */
+    private String toJson(ChatMessage message) throws JsonProcessingException {
+        String json = message.getEncodedJson();
+        return json != null ? json : objectMapper.writeValueAsString(message);
+    }
+}
@@ -0,0 +1,176 @@
+package com.chatflow.client.sender;
+
+import com.chatflow.client.codec.BinaryMessageCodec;
+import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.generator.JsonTemplates;
+import com.chatflow.client.metrics.DetailedMetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import com.chatflow.client.workload.WorkloadFile;
+
+import java.time.Instant;
+
+/**
+ * Workload replay sender
+ * Reads its messages straight from a memory-mapped WorkloadFile instead of a generator
+ * and queue: closed loop over a fixed slice of the file, or open loop taking tickets from
+ * a shared schedule (ticket n is message offset + n). One ChatMessage is reused for every
+ * send, room IDs are cached and JSON frames are spliced from templates, so per message
+ * only the user ID strings, the frame itself and the connection's in-flight entry are
+ * allocated.
+ */
+public class ReplayMessageSender implements Runnable {
+
+    private final WorkloadFile workload;
+    private final int from;
+    private final int to;
+    private final OpenLoopSender.Schedule schedule;
+    private final DetailedMetricsCollector metricsCollector;
+    private final ConnectionPool connectionPool;
+
+    private final ChatMessage message = new ChatMessage();
+    private final JsonTemplates jsonTemplates;
+    private final String[] roomIds;
+
+    // ISO-8601 timestamp, formatted at most once per millisecond
+    private long lastTimestampMillis = -1;
+    private String lastTimestamp;
+
+    /**
+     * Closed loop: send messages [from, to) of the workload, each as soon as the previous one is sent
+     */
+    public ReplayMessageSender(WorkloadFile workload, int from, int to,
+                               DetailedMetricsCollector metricsCollector,
+                               ConnectionPool connectionPool) {
+        this(workload, from, to, null, metricsCollector, connectionPool);
+    }
+
+    /**
+     * Open loop: ticket n of the schedule sends message offset + n at its intended time
+     */
+    public ReplayMessageSender(WorkloadFile workload, int offset, OpenLoopSender.Schedule schedule,
+                               DetailedMetricsCollector metricsCollector,
+                               ConnectionPool connectionPool) {
+        this(workload, offset, Integer.MAX_VALUE, schedule, metricsCollector, connectionPool);
+    }
+
+    private ReplayMessageSender(WorkloadFile workload, int from, int to, OpenLoopSender.Schedule schedule,
+                                DetailedMetricsCollector metricsCollector,
+                                ConnectionPool connectionPool) {
+        this.workload = workload;
+        this.from = from;
+        this.to = to;
+        this.schedule = schedule;
+        this.metricsCollector = metricsCollector;
+        this.connectionPool = connectionPool;
+        this.jsonTemplates = new JsonTemplates(workload.getTexts());
+        this.roomIds = new String[ClientConfig.MAX_ROOM_ID + 1];
+    }
+
+    @Override
+    public void run() {
+        int sent = 0;
+        int failed = 0;
+
+        try {
+            if (schedule == null) {
+                for (int index = from; index < to; index++) {
+                    if (sendMessage(index, System.nanoTime())) {
+                        sent++;
+                    } else {
+                        failed++;
+                    }
+                }
+            } else {
+                long ticket;
+                while ((ticket = schedule.nextTicket()) >= 0) {
+                    long intendedNanos = schedule.awaitSendTime(ticket);
+                    if (sendMessage((int) (from + ticket), intendedNanos)) {
+                        sent++;
+                    } else {
+                        failed++;
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            System.err.println("  ❌ Thread error: " + e.getMessage());
+        }
+
+        System.out.println("  ✅ Thread " + Thread.currentThread().getName() +
+                         " completed: sent=" + sent + ", failed=" + failed);
+    }
+
+    /**
+     * Send workload message index without waiting for its response
+     */
+    private boolean sendMessage(int index, long sendNanos) {
+        fill(index);
+
+        try {
+            ChatWebSocketClient client = connectionPool.getConnection(message.getRoomId());
+            boolean sent = ClientConfig.USE_BINARY_PROTOCOL
+                    ? client.sendTracked(message, BinaryMessageCodec.encode(message), sendNanos)
+                    : client.sendTracked(message, jsonTemplates.encode(message.getMessageId(),
+                            message.getUserId(), message.getUsername(), workload.getTextIndex(index),
+                            message.getTimestamp(), message.getMessageType()), sendNanos);
+
+            if (!sent) {
+                metricsCollector.recordMessage(
+                    System.currentTimeMillis(),
+                    message.getMessageType(),
+                    0,
+                    400,
+                    message.getRoomId()
+                );
+            }
+            return sent;
+
+        } catch (Exception e) {
+            metricsCollector.recordMessage(
+                System.currentTimeMillis(),
+                message.getMessageType(),
+                0,
+                500,
+                message.getRoomId()
+            );
+            metricsCollector.incrementReconnections();
+            return false;
+        }
+    }
+
+    /**
+     * Load workload message index into the reused ChatMessage
+     */
+    private void fill(int index) {
+        String userIdText = String.valueOf(workload.getUserId(index));
+
+        message.setMessageId(workload.getMessageId(index));
+        message.setUserId(userIdText);
+        message.setUsername("user" + userIdText);
+        message.setMessage(workload.getTexts().get(workload.getTextIndex(index)));
+        message.setTimestamp(currentTimestamp());
+        message.setMessageType(workload.getMessageType(index));
+        message.setRoomId(roomId(workload.getRoomId(index)));
+    }
+
+    private String roomId(int roomId) {
+        if (roomId >= roomIds.length) {
+            return String.valueOf(roomId);
+        }
+        String id = roomIds[roomId];
+        if (id == null) {
+            id = String.valueOf(roomId);
+            roomIds[roomId] = id;
+        }
+        return id;
+    }
+
+    private String currentTimestamp() {
+        long now = System.currentTimeMillis();
+        if (now != lastTimestampMillis) {
+            lastTimestampMillis = now;
+            lastTimestamp = Instant.ofEpochMilli(now).toString();
+        }
+        return lastTimestamp;
+    }
+}
@@ -0,0 +1,177 @@
+package com.chatflow.client.sender;
+
+import com.chatflow.client.codec.BinaryMessageCodec;
+import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.generator.MessageGenerator;
+import com.chatflow.client.metrics.DetailedMetricsCollector;
+import com.chatflow.client.model.ChatMessage;
+import com.chatflow.client.model.MessageType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Virtual user sender
+ * One simulated chat user, meant to run on its own virtual thread: a fixed user ID and
+ * room, a session of JOIN, TEXT messages and LEAVE, and a random think time (exponential,
+ * mean VIRTUAL_USER_THINK_TIME_MS) between messages. Sends behave like
+ * DetailedMessageSender: never waiting for a response, latency measured by the connection.
+ * The user sends on its room's pooled connection, or on a connection of its own
+ * (VIRTUAL_USER_OWN_CONNECTION), which it closes once its responses are in.
+ */
+public class VirtualUserSender implements Runnable {
+
+    // Thread-safe, shared by all users
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final int userId;
+    private final String roomId;
+    private final int messagesToSend;
+    private final List<String> texts;
+    private final DetailedMetricsCollector metricsCollector;
+    private final ConnectionPool connectionPool;
+
+    /**
+     * @param connectionPool room connections to share, or null to open the user's own
+     */
+    public VirtualUserSender(int userId, String roomId, int messagesToSend, List<String> texts,
+                             DetailedMetricsCollector metricsCollector,
+                             ConnectionPool connectionPool) {
+        this.userId = userId;
+        this.roomId = roomId;
+        this.messagesToSend = messagesToSend;
+        this.texts = texts;
+        this.metricsCollector = metricsCollector;
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    public void run() {
+        ChatWebSocketClient ownConnection = null;
+
+        try {
+            if (connectionPool == null) {
+                ownConnection = connect();
+            }
+
+            for (int i = 0; i < messagesToSend; i++) {
+                if (i > 0) {
+                    think();
+                }
+                sendMessage(createMessage(i), ownConnection);
+            }
+
+            if (ownConnection != null) {
+                awaitResponses(ownConnection);
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Could not connect: the whole session fails
+            for (int i = 0; i < messagesToSend; i++) {
+                recordFailure(messageType(i), 500);
+            }
+            metricsCollector.incrementReconnections();
+        } finally {
+            if (ownConnection != null) {
+                ownConnection.close();
+            }
+        }
+    }
+
+    private ChatWebSocketClient connect() throws Exception {
+        URI serverUri = URI.create(ClientConfig.SERVER_URL + roomId);
+        ChatWebSocketClient client = ClientConfig.USE_BINARY_PROTOCOL
+                ? ChatWebSocketClient.binary(serverUri, metricsCollector)
+                : new ChatWebSocketClient(serverUri, metricsCollector);
+        client.connect();
+        if (!client.awaitConnection(ClientConfig.CONNECTION_TIMEOUT_MS) || !client.isConnected()) {
+            client.close();
+            throw new Exception("Connection failed for user " + userId + " in room " + roomId);
+        }
+        return client;
+    }
+
+    /**
+     * Type of message i of the session: JOIN first, LEAVE last, TEXT in between
+     */
+    private MessageType messageType(int i) {
+        return i == 0 ? MessageType.JOIN
+                : i == messagesToSend - 1 ? MessageType.LEAVE
+                : MessageType.TEXT;
+    }
+
+    private ChatMessage createMessage(int i) {
+        String userIdText = String.valueOf(userId);
+        ChatMessage message = new ChatMessage(
+            userIdText,
+            "user" + userIdText,
+            texts.get(ThreadLocalRandom.current().nextInt(texts.size())),
+            Instant.now().toString(),
+            messageType(i)
+        );
+        message.setRoomId(roomId);
+        message.setMessageId(MessageGenerator.nextMessageId());
+        return message;
+    }
+
+    private void think() throws InterruptedException {
+        long meanMs = ClientConfig.VIRTUAL_USER_THINK_TIME_MS;
+        if (meanMs > 0) {
+            double u = ThreadLocalRandom.current().nextDouble();
+            Thread.sleep((long) (-Math.log(1 - u) * meanMs));
+        }
+    }
+
+    /**
+     * Send a message without waiting for its response (as DetailedMessageSender)
+     */
+    private void sendMessage(ChatMessage message, ChatWebSocketClient ownConnection) {
+        try {
+            ChatWebSocketClient client = ownConnection != null
+                    ? ownConnection
+                    : connectionPool.getConnection(roomId);
+            boolean sent = ClientConfig.USE_BINARY_PROTOCOL
+                    ? client.sendTracked(message, BinaryMessageCodec.encode(message))
+                    : client.sendTracked(message, toJson(message));
+
+            if (!sent) {
+                recordFailure(message.getMessageType(), 400);
+            }
+
+        } catch (Exception e) {
+            recordFailure(message.getMessageType(), 500);
+            metricsCollector.incrementReconnections();
+        }
+    }
+
+    /**
+     * Wait up to RESPONSE_TIMEOUT_MS for this user's responses, then record the rest as timeouts
+     */
+    private void awaitResponses(ChatWebSocketClient client) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + ClientConfig.RESPONSE_TIMEOUT_MS;
+        while (client.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        client.expireInFlight(408);
+    }
+
+    private void recordFailure(MessageType messageType, int statusCode) {
+        metricsCollector.recordMessage(
+            System.currentTimeMillis(),
+            messageType,
+            0,
+            statusCode,
+            roomId
+        );
+    }
+
+    private static String toJson(ChatMessage message) throws JsonProcessingException {
+        return OBJECT_MAPPER.writeValueAsString(message);
+    }
+}
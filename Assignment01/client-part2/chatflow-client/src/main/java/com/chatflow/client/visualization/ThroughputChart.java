@@ -1,6 +1,6 @@
 package com.chatflow.client.visualization;
 
-import com.chatflow.client.model.MessageRecord;
+import com.chatflow.client.metrics.MetricsAggregate;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
@@ -17,10 +17,10 @@ import java.util.*;
  */
 public class ThroughputChart {
     
-    private final List<MessageRecord> records;
+    private final MetricsAggregate aggregate;
     
-    public ThroughputChart(List<MessageRecord> records) {
-        this.records = records;
+    public ThroughputChart(MetricsAggregate aggregate) {
+        this.aggregate = aggregate;
     }
     
     /**
@@ -59,6 +59,9 @@ public class ThroughputChart {
         
         // Save to file
         File chartFile = new File(outputPath);
+        if (chartFile.getParentFile() != null) {
+            chartFile.getParentFile().mkdirs();
+        }
         ChartUtils.saveChartAsPNG(chartFile, chart, 800, 600);
         
         System.out.println("✅ Chart saved: " + outputPath);
@@ -67,27 +70,17 @@ public class ThroughputChart {
     }
     
     /**
-     * Calculate throughput in 10-second buckets
+     * Calculate throughput in 10-second buckets from the per-second counts
      */
     private Map<Integer, Integer> calculateThroughputBuckets() {
-        if (records.isEmpty()) {
-            return Collections.emptyMap();
-        }
+        long[] secondCounts = aggregate.getSecondCounts();
         
-        // Find min timestamp to use as baseline
-        long minTimestamp = records.stream()
-            .mapToLong(MessageRecord::getTimestamp)
-            .min()
-            .orElse(0);
-        
-        // Group messages into 10-second buckets
+        // Group messages into 10-second buckets, relative to the first second
         Map<Integer, Integer> buckets = new TreeMap<>();
         
-        for (MessageRecord record : records) {
-            long elapsed = record.getTimestamp() - minTimestamp;
-            int bucket = (int) (elapsed / 10000); // 10 seconds in ms
-            
-            buckets.merge(bucket, 1, Integer::sum);
+        for (int second = 0; second < secondCounts.length; second++) {
+            int bucket = second / 10;
+            buckets.merge(bucket, (int) secondCounts[second], Integer::sum);
         }
         
         return buckets;
@@ -0,0 +1,196 @@
+package com.chatflow.client.workload;
+
+import com.chatflow.client.model.MessageType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Pre-generated, replayable workload
+ * A compact binary file written ahead of time from a fixed seed, then memory-mapped and
+ * read in place by the senders, so every run against every server build sends exactly
+ * the same traffic and no generation happens inside the measured window.
+ *
+ * Layout (little-endian):
+ *   header   int32 magic "CFWL", int32 version, int64 seed, int64 message count,
+ *            int32 text count, then per text: int32 length + UTF-8 bytes
+ *   padding  to a multiple of 8
+ *   records  8 bytes per message: int32 userId, int16 roomId, int8 message type
+ *            ordinal, uint8 text index
+ * Message n (0-based) of the file has messageId n + 1.
+ */
+public class WorkloadFile {
+
+    public static final int RECORD_SIZE = 8;
+
+    private static final int MAGIC = 0x4C574643;   // "CFWL"
+    private static final int VERSION = 1;
+    private static final int MAX_TEXTS = 256;
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+    private final Path path;
+    private final long seed;
+    private final long messageCount;
+    private final List<String> texts;
+    private final MappedByteBuffer records;
+
+    private WorkloadFile(Path path, long seed, long messageCount, List<String> texts, MappedByteBuffer records) {
+        this.path = path;
+        this.seed = seed;
+        this.messageCount = messageCount;
+        this.texts = texts;
+        this.records = records;
+    }
+
+    /**
+     * Write a workload file
+     * @param messageCount number of messages
+     * @param seed         random seed; the same seed and spec give the same file
+     */
+    public static void generate(String filePath, long messageCount, long seed, WorkloadSpec spec) throws IOException {
+        List<String> texts = spec.getTexts();
+        if (texts.isEmpty() || texts.size() > MAX_TEXTS) {
+            throw new IllegalArgumentException("1 to " + MAX_TEXTS + " message texts required, got " + texts.size());
+        }
+        if (spec.getMaxRoomId() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Room IDs must fit in 16 bits: " + spec.getMaxRoomId());
+        }
+
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(seed).putLong(messageCount).putInt(texts.size());
+            for (String text : texts) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 4 + bytes.length) {
+                    write(channel, buffer);
+                }
+                buffer.putInt(bytes.length).put(bytes);
+            }
+            long headerSize = channel.position() + buffer.position();
+            for (long i = headerSize; i % RECORD_SIZE != 0; i++) {
+                buffer.put((byte) 0);
+            }
+
+            SplittableRandom random = new SplittableRandom(seed);
+            for (long n = 0; n < messageCount; n++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    write(channel, buffer);
+                }
+                buffer.putInt(spec.nextUserId(random));
+                buffer.putShort((short) spec.nextRoomId(random));
+                buffer.put((byte) spec.nextMessageType(random).ordinal());
+                buffer.put((byte) random.nextInt(texts.size()));
+            }
+            write(channel, buffer);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Memory-map a workload file for reading
+     */
+    public static WorkloadFile open(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), 1 << 20)).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < 28 || header.getInt() != MAGIC) {
+                throw new IOException(filePath + " is not a workload file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(filePath + ": unsupported workload version " + version);
+            }
+            long seed = header.getLong();
+            long messageCount = header.getLong();
+            int textCount = header.getInt();
+
+            List<String> texts = new ArrayList<>(textCount);
+            for (int i = 0; i < textCount; i++) {
+                byte[] bytes = new byte[header.getInt()];
+                header.get(bytes);
+                texts.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            long recordsStart = (header.position() + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+
+            long recordsSize = messageCount * RECORD_SIZE;
+            if (recordsStart + recordsSize > channel.size()) {
+                throw new IOException(filePath + " is truncated: " + messageCount + " messages expected");
+            }
+            if (recordsSize > Integer.MAX_VALUE) {
+                throw new IOException(filePath + ": workloads are limited to " +
+                        (Integer.MAX_VALUE / RECORD_SIZE) + " messages");
+            }
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, recordsStart, recordsSize);
+            records.order(ByteOrder.LITTLE_ENDIAN);
+            return new WorkloadFile(path, seed, messageCount, Collections.unmodifiableList(texts), records);
+        }
+    }
+
+    public String getFilePath() {
+        return path.toString();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Message texts, indexed by getTextIndex()
+     */
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    // Absolute reads only: the mapping is shared by all sender threads
+
+    public long getMessageId(int index) {
+        return index + 1L;
+    }
+
+    public int getUserId(int index) {
+        return records.getInt(index * RECORD_SIZE);
+    }
+
+    public int getRoomId(int index) {
+        return records.getShort(index * RECORD_SIZE + 4);
+    }
+
+    public MessageType getMessageType(int index) {
+        return MESSAGE_TYPES[records.get(index * RECORD_SIZE + 6)];
+    }
+
+    public int getTextIndex(int index) {
+        return records.get(index * RECORD_SIZE + 7) & 0xFF;
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatflow.client.workload;
+
+import com.chatflow.client.config.ClientConfig;
+import com.chatflow.client.model.MessageType;
+import com.chatflow.client.util.MessageLoader;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Distributions a workload file is generated from
+ * Users are uniform; rooms are uniform or Zipf-skewed (room MIN_ROOM_ID the most popular);
+ * message types follow the TEXT / JOIN / LEAVE probabilities.
+ */
+public class WorkloadSpec {
+
+    private final int minUserId;
+    private final int maxUserId;
+    private final int minRoomId;
+    private final int maxRoomId;
+    private final double textProbability;
+    private final double joinProbability;
+    private final List<String> texts;
+
+    // Cumulative room probabilities, null for uniform rooms
+    private final double[] roomCdf;
+
+    /**
+     * @param roomSkew Zipf exponent for room popularity, 0 for uniform
+     */
+    public WorkloadSpec(int minUserId, int maxUserId, int minRoomId, int maxRoomId,
+                        double textProbability, double joinProbability, double roomSkew,
+                        List<String> texts) {
+        this.minUserId = minUserId;
+        this.maxUserId = maxUserId;
+        this.minRoomId = minRoomId;
+        this.maxRoomId = maxRoomId;
+        this.textProbability = textProbability;
+        this.joinProbability = joinProbability;
+        this.texts = texts;
+
+        if (roomSkew > 0) {
+            int rooms = maxRoomId - minRoomId + 1;
+            roomCdf = new double[rooms];
+            double sum = 0;
+            for (int i = 0; i < rooms; i++) {
+                sum += 1.0 / Math.pow(i + 1, roomSkew);
+                roomCdf[i] = sum;
+            }
+            for (int i = 0; i < rooms; i++) {
+                roomCdf[i] /= sum;
+            }
+        } else {
+            roomCdf = null;
+        }
+    }
+
+    /**
+     * The live generator's distributions (ClientConfig) with WORKLOAD_ROOM_SKEW
+     */
+    public static WorkloadSpec fromConfig() {
+        return new WorkloadSpec(
+            ClientConfig.MIN_USER_ID, ClientConfig.MAX_USER_ID,
+            ClientConfig.MIN_ROOM_ID, ClientConfig.MAX_ROOM_ID,
+            ClientConfig.TEXT_PROBABILITY, ClientConfig.JOIN_PROBABILITY,
+            ClientConfig.WORKLOAD_ROOM_SKEW,
+            MessageLoader.loadMessages()
+        );
+    }
+
+    int nextUserId(SplittableRandom random) {
+        return random.nextInt(minUserId, maxUserId + 1);
+    }
+
+    int nextRoomId(SplittableRandom random) {
+        if (roomCdf == null) {
+            return random.nextInt(minRoomId, maxRoomId + 1);
+        }
+        double r = random.nextDouble();
+        int low = 0;
+        int high = roomCdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (roomCdf[mid] < r) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return minRoomId + low;
+    }
+
+    MessageType nextMessageType(SplittableRandom random) {
+        double r = random.nextDouble();
+        if (r < textProbability) {
+            return MessageType.TEXT;
+        } else if (r < textProbability + joinProbability) {
+            return MessageType.JOIN;
+        } else {
+            return MessageType.LEAVE;
+        }
+    }
+
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    public int getMaxRoomId() {
+        return maxRoomId;
+    }
+}
@@ -0,0 +1,110 @@
+package com.chatflow.client.queue;
+
+import com.chatflow.client.model.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The lock-free MPMC array queue against LinkedBlockingQueue (both behind MessageQueue) in the
+ * load test's shape: one generator thread putting messages, and the warmup (32) or main phase
+ * (100) sender count taking them in batches like DetailedMessageSender.
+ * Each invocation moves MESSAGES messages through the queue; the score is messages per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageQueueBenchmark {
+
+    private static final int MESSAGES = 100_000;
+    private static final int CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 16;
+
+    @Param({"false", "true"})
+    private boolean lockFree;
+
+    @Param({"32", "100"})
+    private int consumers;
+
+    private ExecutorService executor;
+    private ChatMessage[] messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(1 + consumers);
+        messages = new ChatMessage[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = new ChatMessage();
+            messages[i].setMessageId(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public int oneProducerManyConsumers() throws Exception {
+        MessageQueue queue = new MessageQueue(CAPACITY, lockFree);
+        AtomicInteger consumed = new AtomicInteger(0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(1 + consumers);
+
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (ChatMessage message : messages) {
+                queue.put(message);
+            }
+            return null;
+        }));
+        for (int c = 0; c < consumers; c++) {
+            futures.add(executor.submit(() -> {
+                List<ChatMessage> batch = new ArrayList<>(BATCH_SIZE);
+                start.await();
+                while (consumed.get() < MESSAGES) {
+                    batch.clear();
+                    if (queue.drainTo(batch, BATCH_SIZE) == 0) {
+                        ChatMessage message = queue.poll(1, TimeUnit.MILLISECONDS);
+                        if (message == null) {
+                            continue;
+                        }
+                        batch.add(message);
+                    }
+                    consumed.addAndGet(batch.size());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return consumed.get();
+    }
+}
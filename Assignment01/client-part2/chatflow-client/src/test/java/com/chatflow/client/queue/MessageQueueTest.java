@@ -0,0 +1,83 @@
+package com.chatflow.client.queue;
+
+import com.chatflow.client.model.ChatMessage;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The load test's queue shape: one generator feeding the warmup (32) and main phase (100)
+ * sender counts, which take batches like DetailedMessageSender. Runs the lock-free queue and
+ * LinkedBlockingQueue side by side; both must deliver every message exactly once.
+ * Their throughput is compared by MessageQueueBenchmark.
+ */
+class MessageQueueTest {
+
+    private static final int MESSAGES = 200_000;
+    private static final int BATCH_SIZE = 16;
+
+    @ParameterizedTest(name = "lockFree={0}, consumers={1}")
+    @CsvSource({"false, 32", "true, 32", "false, 100", "true, 100"})
+    void oneProducerManyConsumersDeliverEveryMessageOnce(boolean lockFree, int consumers) throws Exception {
+        MessageQueue queue = new MessageQueue(10_000, lockFree);
+        AtomicIntegerArray seen = new AtomicIntegerArray(MESSAGES);
+        AtomicInteger consumed = new AtomicInteger(0);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1 + consumers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < MESSAGES; i++) {
+                ChatMessage message = new ChatMessage();
+                message.setMessageId(i);
+                queue.put(message);
+            }
+            return null;
+        }));
+        for (int c = 0; c < consumers; c++) {
+            futures.add(executor.submit(() -> {
+                List<ChatMessage> batch = new ArrayList<>(BATCH_SIZE);
+                start.await();
+                while (consumed.get() < MESSAGES) {
+                    batch.clear();
+                    if (queue.drainTo(batch, BATCH_SIZE) == 0) {
+                        ChatMessage message = queue.poll(1, TimeUnit.MILLISECONDS);
+                        if (message == null) {
+                            continue;
+                        }
+                        batch.add(message);
+                    }
+                    for (ChatMessage message : batch) {
+                        seen.incrementAndGet((int) message.getMessageId());
+                    }
+                    consumed.addAndGet(batch.size());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(MESSAGES, consumed.get());
+        assertEquals(0, queue.size());
+        for (int i = 0; i < MESSAGES; i++) {
+            assertEquals(1, seen.get(i), "message " + i);
+        }
+    }
+}
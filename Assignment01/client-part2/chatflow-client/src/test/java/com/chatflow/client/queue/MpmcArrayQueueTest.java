@@ -0,0 +1,181 @@
+package com.chatflow.client.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpmcArrayQueueTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, new MpmcArrayQueue<Integer>(1).capacity());
+        assertEquals(8, new MpmcArrayQueue<Integer>(8).capacity());
+        assertEquals(16, new MpmcArrayQueue<Integer>(9).capacity());
+        assertEquals(16_384, new MpmcArrayQueue<Integer>(10_000).capacity());
+    }
+
+    @Test
+    void offerFailsWhenFullAndPollReturnsNullWhenEmpty() {
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(4);
+        assertNull(queue.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void staysFifoAcrossManyLaps() {
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(8);
+        int next = 0;
+        int expected = 0;
+        // Keep 0-7 elements queued while the indices wrap around the array many times
+        for (int round = 0; round < 10_000; round++) {
+            int offers = round % 5;
+            for (int i = 0; i < offers && queue.offer(next); i++) {
+                next++;
+            }
+            int polls = (round * 7) % 4;
+            for (int i = 0; i < polls; i++) {
+                Integer element = queue.poll();
+                if (element == null) {
+                    break;
+                }
+                assertEquals(expected++, element);
+            }
+        }
+        for (Integer element; (element = queue.poll()) != null; ) {
+            assertEquals(expected++, element);
+        }
+        assertEquals(next, expected);
+    }
+
+    @Test
+    void drainToTakesAPublishedRunAcrossTheArrayEnd() {
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(8);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(i);
+        }
+        for (int i = 0; i < 6; i++) {
+            queue.poll();
+        }
+        // head and tail at index 6: the next 8 elements wrap around the end of the array
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(100 + i));
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(5, queue.drainTo(drained, 5));
+        assertEquals(3, queue.drainTo(drained, 16));
+        assertEquals(0, queue.drainTo(drained, 16));
+        assertEquals(List.of(100, 101, 102, 103, 104, 105, 106, 107), drained);
+
+        // Drained slots are free for the next lap
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(8));
+    }
+
+    @Test
+    void concurrentProducersAndConsumersNeitherLoseNorDuplicate() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 250_000;
+        int total = producers * perProducer;
+        // Small capacity: the indices wrap around thousands of times
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(64);
+
+        AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        AtomicInteger consumed = new AtomicInteger(0);
+        AtomicInteger outOfOrder = new AtomicInteger(0);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    Integer element = producer * perProducer + i;
+                    while (!queue.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            boolean useDrain = c % 2 == 0;
+            futures.add(executor.submit(() -> {
+                // Each consumer must see every producer's elements in that producer's order
+                int[] lastFromProducer = new int[producers];
+                Arrays.fill(lastFromProducer, -1);
+                List<Integer> batch = new ArrayList<>();
+                start.await();
+                while (consumed.get() < total) {
+                    batch.clear();
+                    if (useDrain) {
+                        queue.drainTo(batch, 16);
+                    } else {
+                        Integer element = queue.poll();
+                        if (element != null) {
+                            batch.add(element);
+                        }
+                    }
+                    if (batch.isEmpty()) {
+                        Thread.yield();
+                        continue;
+                    }
+                    for (Integer element : batch) {
+                        seen.incrementAndGet(element);
+                        int producer = element / perProducer;
+                        if (element <= lastFromProducer[producer]) {
+                            outOfOrder.incrementAndGet();
+                        }
+                        lastFromProducer[producer] = element;
+                    }
+                    consumed.addAndGet(batch.size());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(total, consumed.get());
+        assertNull(queue.poll());
+        assertEquals(0, outOfOrder.get());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, seen.get(i), "element " + i);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.chatflow.codec;
+
+import com.chatflow.model.ChatMessage;
+import com.chatflow.model.MessageType;
+import com.chatflow.service.ServerClock;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BinaryMessageCodec class implements the compact binary frame protocol
+ * (WireProtocol.BINARY). All integers are big-endian.
+ *
+ * ChatMessage:
+ *   int32  userId
+ *   uint8  messageType ordinal (TEXT=0, JOIN=1, LEAVE=2)
+ *   int64  timestamp, epoch millis
+ *   uint8  username length, then UTF-8 bytes
+ *   uint16 message length, then UTF-8 bytes
+ *   [int64 messageId]  optional client correlation ID, present when the frame has 8 more bytes
+ *
+ * Server response:
+ *   uint8  status (0 = SUCCESS, 1 = ERROR)
+ *   SUCCESS: int64 serverTimestamp millis, uint8 roomId length + UTF-8 bytes, ChatMessage
+ *   ERROR:   int64 timestamp millis, uint8 error count, each uint16 length + UTF-8 bytes,
+ *            [int64 messageId]
+ */
+@Component
+public class BinaryMessageCodec {
+    
+    public static final byte STATUS_SUCCESS = 0;
+    public static final byte STATUS_ERROR = 1;
+    
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+    
+    private static final int MAX_ERRORS = 64;
+    private static final int MAX_ERROR_LENGTH = 1024;
+    
+    // userId + messageType + timestamp + username length + message length
+    private static final int CHAT_MESSAGE_HEADER_SIZE = 4 + 1 + 8 + 1 + 2;
+    
+    /**
+     * Decode a ChatMessage from a binary frame payload
+     * @throws IOException if the frame is truncated or malformed
+     */
+    public DecodedMessage decode(ByteBuffer payload) throws IOException {
+        ByteBuffer in = payload.duplicate();
+        try {
+            int userId = in.getInt();
+            int typeOrdinal = in.get() & 0xFF;
+            long timestamp = in.getLong();
+            String username = readString(in, in.get() & 0xFF);
+            String message = readString(in, in.getShort() & 0xFFFF);
+            String messageId = in.remaining() >= 8 ? String.valueOf(in.getLong()) : null;
+            
+            if (typeOrdinal >= MESSAGE_TYPES.length) {
+                throw new IOException("unknown messageType ordinal " + typeOrdinal);
+            }
+            
+            ChatMessage chatMessage = new ChatMessage(
+                    String.valueOf(userId),
+                    username,
+                    message,
+                    Instant.ofEpochMilli(timestamp).toString(),
+                    MESSAGE_TYPES[typeOrdinal]
+            );
+            chatMessage.setMessageId(messageId);
+            return new DecodedMessage(chatMessage, null, 0, 0);
+            
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated frame (" + payload.remaining() + " bytes)");
+        }
+    }
+    
+    /**
+     * Encode a successful ServerResponse
+     * The strings are converted to UTF-8 first, so the frame is encoded straight into
+     * an array of its exact size (no per-thread buffer, no copy).
+     * @return bytes of the response frame
+     * @throws IOException if the timestamp cannot be represented as epoch millis
+     */
+    public byte[] encodeServerResponse(ChatMessage original, ServerClock.Tick serverTime, String roomId) 
+            throws IOException {
+        byte[] room = utf8(roomId, 0xFF);
+        byte[] username = utf8(original.getUsername(), 0xFF);
+        byte[] message = utf8(original.getMessage(), 0xFFFF);
+        Long messageId = binaryMessageId(original.getMessageId());
+        
+        ByteBuffer out = ByteBuffer.allocate(1 + 8 + 1 + room.length + 
+                CHAT_MESSAGE_HEADER_SIZE + username.length + message.length + (messageId != null ? 8 : 0));
+        out.put(STATUS_SUCCESS);
+        out.putLong(serverTime.getEpochMillis());
+        writeString(out, room, 0xFF);
+        writeChatMessage(out, original, username, message, messageId);
+        
+        return out.array();
+    }
+    
+    /**
+     * Encode an ErrorResponse
+     * @return bytes of the response frame
+     */
+    public byte[] encodeErrorResponse(List<String> errors, String messageId, ServerClock.Tick timestamp) {
+        int count = Math.min(errors.size(), MAX_ERRORS);
+        byte[][] texts = new byte[count][];
+        int size = 1 + 8 + 1;
+        for (int i = 0; i < count; i++) {
+            texts[i] = utf8(errors.get(i), MAX_ERROR_LENGTH);
+            size += 2 + texts[i].length;
+        }
+        Long id = binaryMessageId(messageId);
+        
+        ByteBuffer out = ByteBuffer.allocate(size + (id != null ? 8 : 0));
+        out.put(STATUS_ERROR);
+        out.putLong(timestamp.getEpochMillis());
+        out.put((byte) count);
+        for (int i = 0; i < count; i++) {
+            writeString(out, texts[i], MAX_ERROR_LENGTH);
+        }
+        if (id != null) {
+            out.putLong(id);
+        }
+        
+        return out.array();
+    }
+    
+    /**
+     * Fields of a JSON-originated message have already passed validation,
+     * so userId and timestamp parse cleanly; the timestamp is still checked
+     * so that a bad value fails as an IOException like any other encoding error
+     */
+    private void writeChatMessage(ByteBuffer out, ChatMessage chatMessage, byte[] username, byte[] message, 
+                                  Long messageId) throws IOException {
+        long timestamp;
+        try {
+            timestamp = Instant.parse(chatMessage.getTimestamp()).toEpochMilli();
+        } catch (DateTimeException | ArithmeticException e) {
+            throw new IOException("timestamp not representable as epoch millis: " + chatMessage.getTimestamp());
+        }
+        out.putInt(Integer.parseInt(chatMessage.getUserId()));
+        out.put((byte) chatMessage.getMessageType().ordinal());
+        out.putLong(timestamp);
+        writeString(out, username, 0xFF);
+        writeString(out, message, 0xFFFF);
+        if (messageId != null) {
+            out.putLong(messageId);
+        }
+    }
+    
+    /**
+     * The optional int64 messageId; IDs from JSON senders that are not
+     * numeric cannot be represented and are left out (null)
+     */
+    private Long binaryMessageId(String messageId) {
+        if (messageId == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(messageId);
+        } catch (NumberFormatException e) {
+            // not representable in the binary protocol
+            return null;
+        }
+    }
+    
+    /**
+     * UTF-8 bytes of a string field, cut to at most maxLength bytes
+     * on a character boundary (a multi-byte character is never split)
+     */
+    private byte[] utf8(String value, int maxLength) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= maxLength) {
+            return bytes;
+        }
+        int end = maxLength;
+        // bytes[end] is the first byte cut off; while it is a continuation byte (10xxxxxx)
+        // the character it belongs to starts before the cut
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        return Arrays.copyOf(bytes, end);
+    }
+    
+    /**
+     * Write a length-prefixed string: a uint8 prefix when maxLength is 0xFF, otherwise uint16
+     */
+    private void writeString(ByteBuffer out, byte[] bytes, int maxLength) {
+        if (maxLength == 0xFF) {
+            out.put((byte) bytes.length);
+        } else {
+            out.putShort((short) bytes.length);
+        }
+        out.put(bytes);
+    }
+    
+    private String readString(ByteBuffer in, int length) {
+        if (in.remaining() < length) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, 
+                    StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package com.chatflow.codec;
+
+import com.chatflow.model.ChatMessage;
+
+/**
+ * A parsed ChatMessage plus the span of the source text it was parsed from,
+ * so the original JSON object can be echoed back without re-encoding it.
+ * Messages decoded from binary frames have no source text (source is null).
+ */
+public class DecodedMessage {
+    
+    private final ChatMessage message;
+    private final String source;
+    private final int start;
+    private final int end;
+    
+    public DecodedMessage(ChatMessage message, String source, int start, int end) {
+        this.message = message;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+    
+    public ChatMessage getMessage() { return message; }
+    
+    public String getSource() { return source; }
+    
+    /** Offset of the opening '{' in source */
+    public int getStart() { return start; }
+    
+    /** Offset just past the closing '}' in source */
+    public int getEnd() { return end; }
+}
@@ -0,0 +1,263 @@
+package com.chatflow.codec;
+
+import com.chatflow.model.ChatMessage;
+import com.chatflow.model.MessageType;
+import com.chatflow.service.ServerClock;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * JsonMessageCodec class reads ChatMessage and writes ServerResponse / ErrorResponse
+ * with Jackson's streaming JsonParser / JsonGenerator instead of databind.
+ *
+ * - decode() maps the ChatMessage fields (and the optional messageId) by name with the same coercions databind
+ *   applied (scalars to String, enum by name or ordinal, unknown fields rejected) and
+ *   records where the JSON object starts and ends in the payload.
+ * - encodeServerResponse() splices that original object text into the response as-is
+ *   (messages that arrived as binary frames have no text and are written field by field)
+ *   and writes straight into a byte buffer borrowed from a small shared pool, returning
+ *   the UTF-8 bytes of the outbound frame.
+ * - timestamps come from ServerClock as cached pre-encoded strings, or as epoch millis
+ *   numbers when chatflow.clock.numeric-timestamps is enabled.
+ */
+@Component
+public class JsonMessageCodec {
+    
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+    
+    private static final int OUTPUT_BUFFER_SIZE = 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+    
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final boolean numericTimestamps;
+    
+    // Output buffers reused across frames. A bounded pool rather than one per thread: with
+    // virtual threads every frame may be encoded on a new thread. When the pool is empty a
+    // fresh buffer is used; buffers grown by unusually large frames are not kept.
+    private final BlockingQueue<ByteArrayBuilder> outputBuffers = 
+            new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    
+    public JsonMessageCodec(ServerClock serverClock) {
+        this.numericTimestamps = serverClock.isNumericTimestamps();
+    }
+    
+    /**
+     * Parse a ChatMessage from a JSON text payload
+     * @throws IOException if the payload is not a valid ChatMessage JSON object
+     */
+    public DecodedMessage decode(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new JsonParseException(parser, "No content to map due to end-of-input");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Cannot deserialize value of type `" + 
+                        ChatMessage.class.getName() + "` from " + token);
+            }
+            int start = (int) parser.currentTokenLocation().getCharOffset();
+            
+            ChatMessage message = new ChatMessage();
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "userId":
+                        message.setUserId(readString(parser, field));
+                        break;
+                    case "username":
+                        message.setUsername(readString(parser, field));
+                        break;
+                    case "message":
+                        message.setMessage(readString(parser, field));
+                        break;
+                    case "timestamp":
+                        message.setTimestamp(readString(parser, field));
+                        break;
+                    case "messageType":
+                        message.setMessageType(readMessageType(parser));
+                        break;
+                    case "messageId":
+                        message.setMessageId(readString(parser, field));
+                        break;
+                    default:
+                        throw new JsonParseException(parser, "Unrecognized field \"" + field + 
+                                "\" (class " + ChatMessage.class.getName() + "), not marked as ignorable");
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Unexpected token " + token);
+            }
+            int end = (int) parser.currentTokenLocation().getCharOffset() + 1;
+            
+            return new DecodedMessage(message, payload, start, end);
+        }
+    }
+    
+    /**
+     * Encode a ServerResponse, echoing the original message JSON without re-encoding it
+     * @return UTF-8 bytes of the response frame
+     */
+    public byte[] encodeServerResponse(DecodedMessage original, ServerClock.Tick serverTimestamp, 
+                                       String status, String roomId) throws IOException {
+        ByteArrayBuilder buffer = borrowBuffer();
+        try (JsonGenerator gen = jsonFactory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeFieldName("originalMessage");
+            if (original.getSource() != null) {
+                gen.writeRawValue(original.getSource(), original.getStart(), 
+                        original.getEnd() - original.getStart());
+            } else {
+                writeChatMessage(gen, original.getMessage());
+            }
+            gen.writeFieldName("serverTimestamp");
+            writeTimestamp(gen, serverTimestamp);
+            gen.writeStringField("status", status);
+            gen.writeStringField("roomId", roomId);
+            gen.writeEndObject();
+        }
+        return finish(buffer);
+    }
+    
+    /**
+     * Encode an ErrorResponse
+     * @param messageId correlation ID of the rejected message, or null if unknown
+     * @return UTF-8 bytes of the response frame
+     */
+    public byte[] encodeErrorResponse(List<String> errors, String messageId, ServerClock.Tick timestamp) 
+            throws IOException {
+        ByteArrayBuilder buffer = borrowBuffer();
+        try (JsonGenerator gen = jsonFactory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("status", "ERROR");
+            if (messageId != null) {
+                gen.writeStringField("messageId", messageId);
+            }
+            gen.writeArrayFieldStart("errors");
+            for (int i = 0; i < errors.size(); i++) {
+                gen.writeString(errors.get(i));
+            }
+            gen.writeEndArray();
+            gen.writeFieldName("timestamp");
+            writeTimestamp(gen, timestamp);
+            gen.writeEndObject();
+        }
+        return finish(buffer);
+    }
+    
+    /**
+     * Number of bytes the text takes in UTF-8, counted without encoding it
+     * (an unpaired surrogate counts as the 3-byte replacement character)
+     */
+    public static int utf8Length(CharSequence text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // 4 bytes for the pair's 2 chars
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+    
+    private ByteArrayBuilder borrowBuffer() {
+        ByteArrayBuilder buffer = outputBuffers.poll();
+        return buffer != null ? buffer : new ByteArrayBuilder(OUTPUT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Copy out the encoded frame and return the buffer to the pool
+     */
+    private byte[] finish(ByteArrayBuilder buffer) {
+        byte[] frame = buffer.toByteArray();
+        if (frame.length <= MAX_POOLED_BUFFER_SIZE) {
+            buffer.reset();
+            outputBuffers.offer(buffer);
+        }
+        return frame;
+    }
+    
+    private void writeTimestamp(JsonGenerator gen, ServerClock.Tick tick) throws IOException {
+        if (numericTimestamps) {
+            gen.writeNumber(tick.getEpochMillis());
+        } else {
+            gen.writeString(tick.getIsoJson());
+        }
+    }
+    
+    private void writeChatMessage(JsonGenerator gen, ChatMessage message) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("userId", message.getUserId());
+        gen.writeStringField("username", message.getUsername());
+        gen.writeStringField("message", message.getMessage());
+        gen.writeStringField("timestamp", message.getTimestamp());
+        gen.writeStringField("messageType", 
+                message.getMessageType() != null ? message.getMessageType().name() : null);
+        if (message.getMessageId() != null) {
+            gen.writeStringField("messageId", message.getMessageId());
+        }
+        gen.writeEndObject();
+    }
+    
+    /**
+     * String fields accept strings, null and scalar values (coerced to text), like databind
+     */
+    private String readString(JsonParser parser, String field) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isScalarValue()) {
+            return token == JsonToken.VALUE_NULL ? null : parser.getText();
+        }
+        throw new JsonParseException(parser, "Cannot deserialize value of type `java.lang.String` from " + 
+                token + " (field \"" + field + "\")");
+    }
+    
+    /**
+     * messageType accepts the enum name or its ordinal, like databind
+     */
+    private MessageType readMessageType(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String name = parser.getText();
+            for (MessageType type : MESSAGE_TYPES) {
+                if (type.name().equals(name)) {
+                    return type;
+                }
+            }
+            throw new JsonParseException(parser, "Cannot deserialize value of type `" + 
+                    MessageType.class.getName() + "` from String \"" + name + 
+                    "\": not one of the values accepted for Enum class: [TEXT, JOIN, LEAVE]");
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            int ordinal = parser.getIntValue();
+            if (ordinal >= 0 && ordinal < MESSAGE_TYPES.length) {
+                return MESSAGE_TYPES[ordinal];
+            }
+        }
+        throw new JsonParseException(parser, "Cannot deserialize value of type `" + 
+                MessageType.class.getName() + "` from " + token);
+    }
+}
@@ -0,0 +1,51 @@
+package com.chatflow.codec;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import com.chatflow.service.ServerClock;
+
+import java.io.IOException;
+
+/**
+ * The outbound frames for one accepted message, encoded lazily and at most once
+ * per wire protocol. A room with only JSON clients never pays for the binary
+ * encoding and vice versa; every recipient of the same protocol shares one frame.
+ * Not thread-safe: used by the handler thread that broadcasts the message.
+ */
+public class ResponseFrames {
+    
+    private final JsonMessageCodec jsonCodec;
+    private final BinaryMessageCodec binaryCodec;
+    private final DecodedMessage original;
+    private final ServerClock.Tick serverTime;
+    private final String roomId;
+    
+    private WebSocketMessage<?> textFrame;
+    private WebSocketMessage<?> binaryFrame;
+    
+    public ResponseFrames(JsonMessageCodec jsonCodec, BinaryMessageCodec binaryCodec,
+                          DecodedMessage original, ServerClock.Tick serverTime, String roomId) {
+        this.jsonCodec = jsonCodec;
+        this.binaryCodec = binaryCodec;
+        this.original = original;
+        this.serverTime = serverTime;
+        this.roomId = roomId;
+    }
+    
+    public WebSocketMessage<?> frameFor(WireProtocol protocol) throws IOException {
+        if (protocol == WireProtocol.BINARY) {
+            if (binaryFrame == null) {
+                binaryFrame = new BinaryMessage(
+                        binaryCodec.encodeServerResponse(original.getMessage(), serverTime, roomId));
+            }
+            return binaryFrame;
+        }
+        if (textFrame == null) {
+            textFrame = new TextMessage(
+                    jsonCodec.encodeServerResponse(original, serverTime, "SUCCESS", roomId));
+        }
+        return textFrame;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chatflow.codec;
+
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Wire format spoken by a session, chosen at handshake time.
+ * A client opts into BINARY by requesting the "chatflow.binary.v1" subprotocol
+ * or by connecting with ?protocol=binary; everyone else gets JSON text frames.
+ */
+public enum WireProtocol {
+    JSON,
+    BINARY;
+    
+    public static final String BINARY_SUBPROTOCOL = "chatflow.binary.v1";
+    public static final String SESSION_ATTRIBUTE = "chatflow.wireProtocol";
+    
+    /**
+     * Determine the protocol requested by a newly opened session
+     */
+    public static WireProtocol negotiate(WebSocketSession session) {
+        if (BINARY_SUBPROTOCOL.equals(session.getAcceptedProtocol())) {
+            return BINARY;
+        }
+        String query = session.getUri() != null ? session.getUri().getQuery() : null;
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.equalsIgnoreCase("protocol=binary")) {
+                    return BINARY;
+                }
+            }
+        }
+        return JSON;
+    }
+    
+    /**
+     * Protocol recorded for a session by negotiate() at connect time
+     */
+    public static WireProtocol of(WebSocketSession session) {
+        Object protocol = session.getAttributes().get(SESSION_ATTRIBUTE);
+        return protocol == BINARY ? BINARY : JSON;
+    }
+}
@@ -1,10 +1,12 @@
 package com.chatflow.config;
 
+import com.chatflow.codec.WireProtocol;
 import com.chatflow.handler.ChatWebSocketHandler;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 @Configuration
 @EnableWebSocket
@@ -18,7 +20,12 @@ public class WebSocketConfig implements WebSocketConfigurer {
     
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Clients may negotiate the binary frame protocol via subprotocol
+        DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler();
+        handshakeHandler.setSupportedProtocols(WireProtocol.BINARY_SUBPROTOCOL);
+        
         registry.addHandler(chatWebSocketHandler, "/chat/{roomId}")
+                .setHandshakeHandler(handshakeHandler)
                 .setAllowedOrigins("*");
         
         System.out.println("WebSocket endpoint registered: /chat/{roomId}");
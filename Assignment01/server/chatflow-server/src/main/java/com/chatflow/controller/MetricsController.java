@@ -0,0 +1,62 @@
+package com.chatflow.controller;
+
+import com.chatflow.service.ConnectionManager;
+import com.chatflow.service.RoomMetrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-room metrics endpoint
+ * Counters are read (summed) here only; the message path just adds to them.
+ * Rooms are listed while they have sessions; the top-level totals are cumulative since startup.
+ */
+@RestController
+public class MetricsController {
+
+    private final ConnectionManager connectionManager;
+
+    public MetricsController(ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        Map<String, Object> response = new HashMap<>();
+
+        double totalRate = 0;
+
+        Map<String, Object> rooms = new TreeMap<>();
+        for (Map.Entry<String, RoomMetrics> entry : connectionManager.getRoomMetrics().entrySet()) {
+            String roomId = entry.getKey();
+            RoomMetrics metrics = entry.getValue();
+
+            double rate = metrics.getMessagesPerSecond();
+
+            Map<String, Object> room = new HashMap<>();
+            room.put("messages", metrics.getMessages());
+            room.put("bytes", metrics.getBytes());
+            room.put("errors", metrics.getErrors());
+            room.put("droppedMessages", connectionManager.getDroppedMessages(roomId));
+            room.put("messagesPerSecond", Math.round(rate * 10) / 10.0);
+            rooms.put(roomId, room);
+
+            totalRate += rate;
+        }
+
+        response.put("timestamp", Instant.now().toString());
+        response.put("activeConnections", connectionManager.getTotalConnections());
+        response.put("messagesProcessed", connectionManager.getTotalMessagesProcessed());
+        response.put("bytes", connectionManager.getTotalBytes());
+        response.put("errors", connectionManager.getTotalErrors());
+        response.put("droppedMessages", connectionManager.getTotalDroppedMessages());
+        response.put("messagesPerSecond", Math.round(totalRate * 10) / 10.0);
+        response.put("rooms", rooms);
+
+        return response;
+    }
+}
@@ -1,34 +1,58 @@
 package com.chatflow.handler;
 
+import com.chatflow.codec.BinaryMessageCodec;
+import com.chatflow.codec.DecodedMessage;
+import com.chatflow.codec.JsonMessageCodec;
+import com.chatflow.codec.ResponseFrames;
+import com.chatflow.codec.WireProtocol;
+import com.chatflow.logging.LogSampler;
 import com.chatflow.model.ChatMessage;
-import com.chatflow.model.ErrorResponse;
-import com.chatflow.model.ServerResponse;
 import com.chatflow.service.ConnectionManager;
+import com.chatflow.service.RoomBroadcaster;
+import com.chatflow.service.ServerClock;
 import com.chatflow.validator.MessageValidator;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * ChatWebSocketHandler class is the main WebSocket handler
- * Core business logic: receiving messages, validation, response
+ * Core business logic: receiving messages, validation, room broadcast
+ * Accepts JSON text frames and, for sessions that negotiated WireProtocol.BINARY,
+ * binary frames; both go through the same validation and room broadcast.
  */
 @Component
-public class ChatWebSocketHandler extends TextWebSocketHandler {
+public class ChatWebSocketHandler extends AbstractWebSocketHandler {
     
-    private final ObjectMapper objectMapper;
+    private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+    
+    private final JsonMessageCodec jsonCodec;
+    private final BinaryMessageCodec binaryCodec;
     private final ConnectionManager connectionManager;
+    private final RoomBroadcaster roomBroadcaster;
+    private final LogSampler logSampler;
+    private final ServerClock serverClock;
     
-    public ChatWebSocketHandler(ConnectionManager connectionManager) {
-        this.objectMapper = new ObjectMapper();
+    public ChatWebSocketHandler(ConnectionManager connectionManager, 
+                                RoomBroadcaster roomBroadcaster,
+                                LogSampler logSampler,
+                                JsonMessageCodec jsonCodec,
+                                BinaryMessageCodec binaryCodec,
+                                ServerClock serverClock) {
+        this.jsonCodec = jsonCodec;
+        this.binaryCodec = binaryCodec;
         this.connectionManager = connectionManager;
+        this.roomBroadcaster = roomBroadcaster;
+        this.logSampler = logSampler;
+        this.serverClock = serverClock;
     }
     
     /**
@@ -37,66 +61,111 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String roomId = extractRoomId(session);
+        WireProtocol protocol = WireProtocol.negotiate(session);
+        session.getAttributes().put(WireProtocol.SESSION_ATTRIBUTE, protocol);
         connectionManager.addSession(roomId, session);
         
-        System.out.println("🔗 WebSocket connected | Room: " + roomId + 
-                         " | Session: " + session.getId());
+        log.debug("WebSocket connected | Room: {} | Session: {} | Protocol: {}", 
+                roomId, session.getId(), protocol);
     }
     
     /**
-     * Called when a text message is received (core method)
+     * Called when a text message is received
      */
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) 
             throws Exception {
         
         String roomId = extractRoomId(session);
-        long startTime = System.currentTimeMillis();
+        DecodedMessage decoded;
+        try {
+            decoded = jsonCodec.decode(message.getPayload());
+        } catch (Exception e) {
+            if (log.isDebugEnabled() && logSampler.sample()) {
+                log.debug("Invalid JSON | Room: {} | {}", roomId, e.getMessage());
+            }
+            connectionManager.recordError(roomId);
+            sendErrorResponse(session, roomId, null,
+                    Collections.singletonList("Invalid JSON format: " + e.getMessage()));
+            return;
+        }
+        processMessage(session, roomId, decoded, JsonMessageCodec.utf8Length(message.getPayload()));
+    }
+    
+    /**
+     * Called when a binary message is received (WireProtocol.BINARY sessions)
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) 
+            throws Exception {
+        
+        String roomId = extractRoomId(session);
+        int payloadBytes = message.getPayload().remaining();
+        DecodedMessage decoded;
+        try {
+            decoded = binaryCodec.decode(message.getPayload());
+        } catch (Exception e) {
+            if (log.isDebugEnabled() && logSampler.sample()) {
+                log.debug("Invalid binary frame | Room: {} | {}", roomId, e.getMessage());
+            }
+            connectionManager.recordError(roomId);
+            sendErrorResponse(session, roomId, null,
+                    Collections.singletonList("Invalid binary frame: " + e.getMessage()));
+            return;
+        }
+        processMessage(session, roomId, decoded, payloadBytes);
+    }
+    
+    /**
+     * Validate a decoded message and broadcast it to the room (core method)
+     */
+    private void processMessage(WebSocketSession session, String roomId, DecodedMessage decoded,
+                                int payloadBytes) throws Exception {
+        
+        long startTime = System.nanoTime();
+        // Per-message logging is level-gated and sampled (chatflow.logging.message-sample-rate)
+        boolean logThisMessage = log.isDebugEnabled() && logSampler.sample();
         
         try {
-            // 1. Parse JSON message
-            ChatMessage chatMessage = objectMapper.readValue(
-                    message.getPayload(), ChatMessage.class);
+            // 1. Decoded by the text or binary path
+            ChatMessage chatMessage = decoded.getMessage();
             
-            System.out.println("📨 Received message | Room: " + roomId + 
-                             " | From: " + chatMessage.getUsername() + 
-                             " | Type: " + chatMessage.getMessageType());
+            if (logThisMessage) {
+                log.debug("Received message | Room: {} | From: {} | Type: {}", 
+                        roomId, chatMessage.getUsername(), chatMessage.getMessageType());
+            }
             
             // 2. Validate message
             List<String> validationErrors = MessageValidator.validate(chatMessage);
             
             if (!validationErrors.isEmpty()) {
                 // Validation failed - send error response
-                sendErrorResponse(session, validationErrors);
-                System.err.println("❌ Validation failed: " + validationErrors);
+                connectionManager.recordError(roomId);
+                sendErrorResponse(session, roomId, chatMessage.getMessageId(), validationErrors);
+                if (logThisMessage) {
+                    log.debug("Validation failed | Room: {} | Errors: {}", roomId, validationErrors);
+                }
                 return;
             }
             
-            // 3. Build success response (Echo back)
-            ServerResponse response = new ServerResponse(
-                    chatMessage,
-                    Instant.now().toString(),
-                    "SUCCESS",
-                    roomId
-            );
+            // 3. Success response, encoded at most once per wire protocol in the room
+            ResponseFrames response = new ResponseFrames(
+                    jsonCodec, binaryCodec, decoded, serverClock.now(), roomId);
             
-            // 4. Send response
-            String jsonResponse = objectMapper.writeValueAsString(response);
-            session.sendMessage(new TextMessage(jsonResponse));
+            // 4. Fan out to every session in the room (sender included)
+            roomBroadcaster.broadcast(roomId, response);
             
             // 5. Record statistics
-            connectionManager.incrementMessagesProcessed();
+            connectionManager.recordMessage(roomId, payloadBytes);
             
-            long processingTime = System.currentTimeMillis() - startTime;
-            System.out.println("Message processed in " + processingTime + "ms");
+            if (logThisMessage) {
+                log.debug("Message processed in {}us", (System.nanoTime() - startTime) / 1000);
+            }
             
         } catch (Exception e) {
-            // JSON parsing error or other exceptions
-            System.err.println("💥 Error processing message: " + e.getMessage());
-            e.printStackTrace();
-            
-            sendErrorResponse(session, 
-                    Collections.singletonList("Invalid JSON format: " + e.getMessage()));
+            log.warn("Error processing message | Room: {}", roomId, e);
+            sendErrorResponse(session, roomId, decoded.getMessage().getMessageId(),
+                    Collections.singletonList("Error processing message: " + e.getMessage()));
         }
     }
     
@@ -110,9 +179,8 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         String roomId = extractRoomId(session);
         connectionManager.removeSession(roomId, session);
         
-        System.out.println("🔌 WebSocket disconnected | Room: " + roomId + 
-                         " | Session: " + session.getId() + 
-                         " | Status: " + status);
+        log.debug("WebSocket disconnected | Room: {} | Session: {} | Status: {}", 
+                roomId, session.getId(), status);
     }
     
     /**
@@ -122,8 +190,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     public void handleTransportError(WebSocketSession session, Throwable exception) 
             throws Exception {
         
-        System.err.println("⚠️ Transport error | Session: " + session.getId());
-        exception.printStackTrace();
+        log.warn("Transport error | Session: {}", session.getId(), exception);
         
         if (session.isOpen()) {
             session.close(CloseStatus.SERVER_ERROR);
@@ -141,18 +208,21 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     }
     
     /**
-     * Send error response
+     * Send error response to the sender only, in its wire protocol, through its buffered outbound session
+     * @param messageId correlation ID echoed back to the sender, null if the message could not be decoded
      */
-    private void sendErrorResponse(WebSocketSession session, List<String> errors) 
-            throws Exception {
+    private void sendErrorResponse(WebSocketSession session, String roomId, String messageId,
+                                   List<String> errors) throws Exception {
         
-        ErrorResponse errorResponse = new ErrorResponse(
-                "ERROR",
-                errors,
-                Instant.now().toString()
-        );
+        WebSocketSession outbound = connectionManager.getOutboundSession(roomId, session.getId());
+        if (outbound == null) {
+            return; // already disconnected
+        }
         
-        String jsonError = objectMapper.writeValueAsString(errorResponse);
-        session.sendMessage(new TextMessage(jsonError));
+        if (WireProtocol.of(session) == WireProtocol.BINARY) {
+            outbound.sendMessage(new BinaryMessage(binaryCodec.encodeErrorResponse(errors, messageId, serverClock.now())));
+        } else {
+            outbound.sendMessage(new TextMessage(jsonCodec.encodeErrorResponse(errors, messageId, serverClock.now())));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.chatflow.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * LogSampler class decides whether a per-message log line should be emitted.
+ * With a sample rate of N, roughly 1 in N messages is logged. Sampling uses
+ * ThreadLocalRandom rather than a shared counter so handler threads do not
+ * contend on a single cache line just to decide whether to log.
+ */
+@Component
+public class LogSampler {
+    
+    private final int sampleRate;
+    
+    /**
+     * @param sampleRate 1 logs every message, N logs ~1 in N, 0 disables per-message logging
+     */
+    public LogSampler(@Value("${chatflow.logging.message-sample-rate:1000}") int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+    
+    public boolean sample() {
+        if (sampleRate <= 0) {
+            return false;
+        }
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+    
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}
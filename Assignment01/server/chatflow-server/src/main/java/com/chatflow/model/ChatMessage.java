@@ -30,6 +30,10 @@ public class ChatMessage {
     @JsonProperty("messageType")
     private MessageType messageType;
     
+    // Optional client correlation ID, echoed back in the response; not validated
+    @JsonProperty("messageId")
+    private String messageId;
+    
     public ChatMessage() {}
     
     public ChatMessage(String userId, String username, String message, String timestamp, MessageType messageType) {
@@ -54,4 +58,7 @@ public class ChatMessage {
     
     public MessageType getMessageType() { return messageType; }
     public void setMessageType(MessageType messageType) { this.messageType = messageType; }
+    
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
 }
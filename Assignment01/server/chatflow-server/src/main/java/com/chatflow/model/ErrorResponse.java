@@ -8,6 +8,9 @@ public class ErrorResponse {
     @JsonProperty("status")
     private String status;
     
+    @JsonProperty("messageId")
+    private String messageId;
+    
     @JsonProperty("errors")
     private List<String> errors;
     
@@ -25,6 +28,9 @@ public class ErrorResponse {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+    
     public List<String> getErrors() { return errors; }
     public void setErrors(List<String> errors) { this.errors = errors; }
     
@@ -0,0 +1,231 @@
+package com.chatflow.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AsyncSendSessionDecorator class gives a WebSocket session a non-blocking send pipeline.
+ * sendMessage() only appends to a bounded buffer; at most one task on the shared outbound
+ * executor drains the buffer into the underlying session, so writes are never concurrent
+ * and callers are never blocked by a slow TCP peer. Buffer space is reserved with a CAS
+ * before a frame is enqueued, so concurrent senders cannot overshoot the limit; when the
+ * buffer is full the configured OverflowPolicy applies. When a single write exceeds the
+ * send-time limit the session is closed, either by the next sendMessage() or by the
+ * OutboundSessionFactory watchdog calling closeIfSendTimeLimitExceeded().
+ */
+public class AsyncSendSessionDecorator extends WebSocketSessionDecorator {
+    
+    private static final Logger log = LoggerFactory.getLogger(AsyncSendSessionDecorator.class);
+    
+    // Frames written per drain task before it yields the executor thread to other sessions
+    private static final int MAX_FRAMES_PER_DRAIN = 64;
+    
+    private final Executor drainExecutor;
+    private final long sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final OverflowPolicy overflowPolicy;
+    
+    private final ConcurrentLinkedQueue<WebSocketMessage<?>> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferSize = new AtomicInteger(0);
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicLong droppedMessages = new AtomicLong(0);
+    
+    // Start time of the write in progress, 0 when idle
+    private volatile long sendStartTime = 0;
+    private volatile boolean closing = false;
+    
+    public AsyncSendSessionDecorator(WebSocketSession session, Executor drainExecutor,
+                                     long sendTimeLimitMs, int bufferSizeLimit,
+                                     OverflowPolicy overflowPolicy) {
+        super(session);
+        this.drainExecutor = drainExecutor;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.overflowPolicy = overflowPolicy;
+    }
+    
+    /**
+     * Queue a message for asynchronous delivery (never blocks on the network)
+     */
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closing) {
+            return;
+        }
+        
+        if (sendTimeLimitExceeded()) {
+            closeSlowSession("Send time limit exceeded (" + sendTimeLimitMs + "ms)");
+            return;
+        }
+        
+        int size = message.getPayloadLength();
+        if (!reserve(size)) {
+            return;
+        }
+        
+        buffer.add(message);
+        if (closing) {
+            // discard() ran between reserve() and add(): take the frame back out and
+            // return its reservation (unless discard() or a drain got to it first)
+            if (buffer.remove(message)) {
+                bufferSize.addAndGet(-size);
+            }
+            return;
+        }
+        scheduleDrain();
+    }
+    
+    /**
+     * Close the session if the write in progress has exceeded the send-time limit
+     * (called periodically, so a session stuck in a write is closed even if no
+     * further message is sent to it)
+     * @return true if the session was closed
+     */
+    public boolean closeIfSendTimeLimitExceeded() {
+        if (closing || !sendTimeLimitExceeded()) {
+            return false;
+        }
+        closeSlowSession("Send time limit exceeded (" + sendTimeLimitMs + "ms)");
+        return true;
+    }
+    
+    public boolean isClosing() {
+        return closing;
+    }
+    
+    /**
+     * Stop delivering and release buffered frames (called once the session is closed)
+     * Each removed frame returns its own reservation, so a frame polled concurrently by a
+     * drain or added by a sender that already reserved space keeps bufferSize consistent.
+     */
+    public void discard() {
+        closing = true;
+        WebSocketMessage<?> message;
+        while ((message = buffer.poll()) != null) {
+            bufferSize.addAndGet(-message.getPayloadLength());
+        }
+    }
+    
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+    
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+    
+    /**
+     * Reserve buffer space for a new message, applying the overflow policy when it does not fit
+     * @return true if the space was reserved and the message should be buffered
+     */
+    private boolean reserve(int size) {
+        while (true) {
+            int current = bufferSize.get();
+            // A frame larger than the whole limit is still accepted into an empty buffer
+            if (current + size <= bufferSizeLimit || current == 0) {
+                if (bufferSize.compareAndSet(current, current + size)) {
+                    return true;
+                }
+                continue;
+            }
+            
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    droppedMessages.incrementAndGet();
+                    return false;
+                case CLOSE:
+                    closeSlowSession("Send buffer size limit exceeded (" + bufferSizeLimit + " bytes)");
+                    return false;
+                case DROP_OLDEST:
+                default:
+                    if (closing) {
+                        return false;
+                    }
+                    WebSocketMessage<?> oldest = buffer.poll();
+                    if (oldest != null) {
+                        bufferSize.addAndGet(-oldest.getPayloadLength());
+                        droppedMessages.incrementAndGet();
+                    } else {
+                        // Space reserved by other senders whose frames are not enqueued yet
+                        Thread.onSpinWait();
+                    }
+            }
+        }
+    }
+    
+    private boolean sendTimeLimitExceeded() {
+        long start = sendStartTime;
+        return start != 0 && System.currentTimeMillis() - start > sendTimeLimitMs;
+    }
+    
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                drainExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Executor is shutting down
+                draining.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Write buffered frames in order; runs on the outbound executor, one task per session at a time.
+     * At most MAX_FRAMES_PER_DRAIN frames per task: a busy session then resubmits itself behind
+     * the other sessions' tasks instead of holding an executor thread for as long as it has traffic.
+     */
+    private void drain() {
+        try {
+            int written = 0;
+            WebSocketMessage<?> message;
+            while (written < MAX_FRAMES_PER_DRAIN && !closing && (message = buffer.poll()) != null) {
+                written++;
+                bufferSize.addAndGet(-message.getPayloadLength());
+                sendStartTime = System.currentTimeMillis();
+                try {
+                    getDelegate().sendMessage(message);
+                } catch (IOException | IllegalStateException e) {
+                    log.warn("Outbound write failed | Session: {} | {}", getId(), e.getMessage());
+                    discard();
+                } finally {
+                    sendStartTime = 0;
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        
+        // Frames left over from a full batch, or enqueued after the last poll but before
+        // draining was cleared
+        if (!closing && !buffer.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+    
+    private void closeSlowSession(String reason) {
+        // Senders and the watchdog may all detect the same slow session
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        log.warn("Closing slow session | Session: {} | {}", getId(), reason);
+        discard();
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.warn("Failed to close session {}: {}", getId(), e.getMessage());
+        }
+    }
+}
@@ -1,59 +1,106 @@
 package com.chatflow.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ConnectionManager class manages WebSocket connections for the chat application.
  * It maintains a mapping of chat rooms to their active WebSocket sessions and provides
  * methods to add/remove sessions, track total connections, and count messages processed.
+ * Message counters are LongAdders (global and per room in RoomMetrics), so recording a
+ * message never contends with other handler threads on a shared counter. A room's
+ * RoomMetrics live exactly as long as the room has sessions; the global counters are
+ * cumulative since startup.
  */
 @Service
 public class ConnectionManager {
     
+    private static final Logger log = LoggerFactory.getLogger(ConnectionManager.class);
+    
     // roomId -> (sessionId -> WebSocketSession)
+    // Rooms are created and removed only inside compute/computeIfPresent on the room key, so a
+    // join can never land in an inner map that a concurrent leave has just unlinked. Reads
+    // (broadcast fan-out) use plain get() and stay lock-free.
     private final ConcurrentHashMap<String, ConcurrentHashMap<String, WebSocketSession>> 
             roomSessions = new ConcurrentHashMap<>();
     
     private final AtomicInteger totalConnections = new AtomicInteger(0);
-    private final AtomicInteger totalMessagesProcessed = new AtomicInteger(0);
+    private final LongAdder totalMessagesProcessed = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+    private final LongAdder totalErrors = new LongAdder();
+    // Drops of sessions that have left; live sessions' drops are summed on read
+    private final LongAdder droppedByClosedSessions = new LongAdder();
+    
+    // roomId -> counters; created and removed together with the room's session map (inside
+    // the same compute on roomSessions), so only rooms that currently exist have an entry
+    private final ConcurrentHashMap<String, RoomMetrics> roomMetrics = new ConcurrentHashMap<>();
+    
+    private final OutboundSessionFactory outboundSessionFactory;
+    
+    public ConnectionManager(OutboundSessionFactory outboundSessionFactory) {
+        this.outboundSessionFactory = outboundSessionFactory;
+    }
     
     /**
-     * Add a new WebSocket session to a chat room
+     * Add a new WebSocket session to a chat room.
+     * The session is stored wrapped in an asynchronous bounded send pipeline so that
+     * broadcasts from many handler threads never write to the raw session concurrently.
      * @param roomId
      * @param session
      */
     public void addSession(String roomId, WebSocketSession session) {
-        roomSessions.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>())
-                    .put(session.getId(), session);
-        totalConnections.incrementAndGet();
+        WebSocketSession bufferedSession = outboundSessionFactory.decorate(session);
+        roomSessions.compute(roomId, (k, sessions) -> {
+            if (sessions == null) {
+                sessions = new ConcurrentHashMap<>();
+                roomMetrics.put(roomId, new RoomMetrics());
+            }
+            sessions.put(session.getId(), bufferedSession);
+            return sessions;
+        });
+        int total = totalConnections.incrementAndGet();
         
-        System.out.println("✅ Connection added | Room: " + roomId + 
-                         " | SessionId: " + session.getId() + 
-                         " | Total: " + totalConnections.get());
+        log.debug("Connection added | Room: {} | SessionId: {} | Total: {}", 
+                roomId, session.getId(), total);
     }
     
     /**
-     * Remove a WebSocket session from a chat room
+     * Remove a WebSocket session from a chat room.
+     * The room itself (and its RoomMetrics) is removed in the same atomic step when it becomes empty.
      * @param roomId
      * @param session
      */
     public void removeSession(String roomId, WebSocketSession session) {
-        ConcurrentHashMap<String, WebSocketSession> sessions = roomSessions.get(roomId);
-        if (sessions != null) {
-            sessions.remove(session.getId());
+        roomSessions.computeIfPresent(roomId, (k, sessions) -> {
+            WebSocketSession removed = sessions.remove(session.getId());
+            if (removed instanceof AsyncSendSessionDecorator) {
+                AsyncSendSessionDecorator outbound = (AsyncSendSessionDecorator) removed;
+                outbound.discard();
+                // Keep the session's drops in the room's and the global totals
+                long dropped = outbound.getDroppedMessages();
+                droppedByClosedSessions.add(dropped);
+                RoomMetrics metrics = roomMetrics.get(roomId);
+                if (metrics != null) {
+                    metrics.recordDropped(dropped);
+                }
+            }
             if (sessions.isEmpty()) {
-                roomSessions.remove(roomId);
+                roomMetrics.remove(roomId);
+                return null;
             }
-        }
-        totalConnections.decrementAndGet();
+            return sessions;
+        });
+        int total = totalConnections.decrementAndGet();
         
-        System.out.println("❌ Connection removed | Room: " + roomId + 
-                         " | SessionId: " + session.getId() + 
-                         " | Total: " + totalConnections.get());
+        log.debug("Connection removed | Room: {} | SessionId: {} | Total: {}", 
+                roomId, session.getId(), total);
     }
     
     /**
@@ -66,10 +113,82 @@ public class ConnectionManager {
     }
     
     /**
-     * Increment the count of total messages processed
+     * Get the buffered outbound session registered for a raw session
+     * @param roomId
+     * @param sessionId
+     * @return the buffered session, or null if it is no longer in the room
+     */
+    public WebSocketSession getOutboundSession(String roomId, String sessionId) {
+        ConcurrentHashMap<String, WebSocketSession> sessions = roomSessions.get(roomId);
+        return sessions != null ? sessions.get(sessionId) : null;
+    }
+    
+    /**
+     * Record a message accepted and broadcast in a room
+     * @param roomId
+     * @param payloadBytes size of the inbound frame in bytes (UTF-8 bytes for text frames)
+     */
+    public void recordMessage(String roomId, int payloadBytes) {
+        totalMessagesProcessed.increment();
+        totalBytes.add(payloadBytes);
+        RoomMetrics metrics = roomMetrics.get(roomId);
+        if (metrics != null) {
+            metrics.recordMessage(payloadBytes);
+        }
+    }
+    
+    /**
+     * Record a message rejected in a room (decode or validation error)
+     * @param roomId
      */
-    public void incrementMessagesProcessed() {
-        totalMessagesProcessed.incrementAndGet();
+    public void recordError(String roomId) {
+        totalErrors.increment();
+        RoomMetrics metrics = roomMetrics.get(roomId);
+        if (metrics != null) {
+            metrics.recordError();
+        }
+    }
+    
+    /**
+     * Get the counters of every room that currently has sessions
+     * @return roomId -> RoomMetrics
+     */
+    public Map<String, RoomMetrics> getRoomMetrics() {
+        return roomMetrics;
+    }
+    
+    /**
+     * Messages dropped by the overflow policy in a room since it was created:
+     * sessions that have left plus the sessions currently in it
+     * @param roomId
+     * @return
+     */
+    public long getDroppedMessages(String roomId) {
+        RoomMetrics metrics = roomMetrics.get(roomId);
+        ConcurrentHashMap<String, WebSocketSession> sessions = roomSessions.get(roomId);
+        long dropped = metrics != null ? metrics.getDroppedByClosedSessions() : 0;
+        return sessions != null ? dropped + sumDropped(sessions.values()) : dropped;
+    }
+    
+    /**
+     * Messages dropped by the overflow policy since startup, in all rooms
+     */
+    public long getTotalDroppedMessages() {
+        long dropped = droppedByClosedSessions.sum();
+        for (ConcurrentHashMap<String, WebSocketSession> sessions : roomSessions.values()) {
+            dropped += sumDropped(sessions.values());
+        }
+        return dropped;
+    }
+    
+    private static long sumDropped(Iterable<WebSocketSession> sessions) {
+        long dropped = 0;
+        for (WebSocketSession session : sessions) {
+            if (session instanceof AsyncSendSessionDecorator) {
+                dropped += ((AsyncSendSessionDecorator) session).getDroppedMessages();
+            }
+        }
+        return dropped;
     }
     
     /**
@@ -84,8 +203,16 @@ public class ConnectionManager {
         return roomSessions.size();
     }
     
-    public int getTotalMessagesProcessed() {
-        return totalMessagesProcessed.get();
+    public long getTotalMessagesProcessed() {
+        return totalMessagesProcessed.sum();
+    }
+    
+    public long getTotalBytes() {
+        return totalBytes.sum();
+    }
+    
+    public long getTotalErrors() {
+        return totalErrors.sum();
     }
     
     /**
@@ -95,7 +222,7 @@ public class ConnectionManager {
         System.out.println("\n========== Server Statistics ==========");
         System.out.println("Active Connections: " + totalConnections.get());
         System.out.println("Active Rooms: " + roomSessions.size());
-        System.out.println("Messages Processed: " + totalMessagesProcessed.get());
+        System.out.println("Messages Processed: " + totalMessagesProcessed.sum());
         System.out.println("======================================\n");
     }
 }
\ No newline at end of file
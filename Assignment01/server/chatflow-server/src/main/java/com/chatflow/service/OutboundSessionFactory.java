@@ -0,0 +1,118 @@
+package com.chatflow.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OutboundSessionFactory class wraps raw sessions in AsyncSendSessionDecorator
+ * and owns the shared executor that drains their send buffers.
+ * Limits come from the spring.websocket.* properties in application.yml.
+ * With spring.threads.virtual.enabled on a Java 21 runtime the buffers are drained by
+ * one virtual thread per drain task instead of the fixed outbound-threads pool.
+ * A watchdog thread periodically closes sessions whose write in progress has exceeded the
+ * send-time limit, so a stalled session is closed even when nothing more is sent to it.
+ */
+@Component
+public class OutboundSessionFactory {
+    
+    private static final Logger log = LoggerFactory.getLogger(OutboundSessionFactory.class);
+    
+    private final ExecutorService drainExecutor;
+    private final ScheduledExecutorService watchdog;
+    // Sessions checked by the watchdog; discarded ones are dropped on its next pass
+    private final Set<AsyncSendSessionDecorator> sessions = ConcurrentHashMap.newKeySet();
+    private final long sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final OverflowPolicy overflowPolicy;
+    
+    public OutboundSessionFactory(
+            @Value("${spring.websocket.send-time-limit:10s}") Duration sendTimeLimit,
+            @Value("${spring.websocket.send-buffer-size-limit:512KB}") DataSize sendBufferSizeLimit,
+            @Value("${spring.websocket.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+            @Value("${spring.websocket.outbound-threads:32}") int outboundThreads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.sendTimeLimitMs = sendTimeLimit.toMillis();
+        this.bufferSizeLimit = (int) sendBufferSizeLimit.toBytes();
+        this.overflowPolicy = overflowPolicy;
+        
+        ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.drainExecutor = virtualExecutor;
+            log.info("Outbound send buffers drained on virtual threads");
+        } else {
+            AtomicInteger threadCount = new AtomicInteger(0);
+            this.drainExecutor = Executors.newFixedThreadPool(outboundThreads, r -> {
+                Thread thread = new Thread(r, "ws-outbound-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        // Check a few times per limit, but at most once a second
+        long checkIntervalMs = Math.max(10, Math.min(1000, sendTimeLimitMs / 4));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ws-send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog.scheduleWithFixedDelay(this::closeStalledSessions, 
+                checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() looked up reflectively, so the
+     * default Java 17 build still compiles and runs
+     * @return the executor, or null when the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; "
+                    + "using the platform outbound pool", Runtime.version().feature());
+            return null;
+        }
+    }
+    
+    public AsyncSendSessionDecorator decorate(WebSocketSession session) {
+        AsyncSendSessionDecorator decorated = new AsyncSendSessionDecorator(
+                session, drainExecutor, sendTimeLimitMs, bufferSizeLimit, overflowPolicy);
+        sessions.add(decorated);
+        return decorated;
+    }
+    
+    private void closeStalledSessions() {
+        for (AsyncSendSessionDecorator session : sessions) {
+            try {
+                if (session.isClosing() || session.closeIfSendTimeLimitExceeded()) {
+                    sessions.remove(session);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Send-time check failed for session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        watchdog.shutdownNow();
+        drainExecutor.shutdown();
+        drainExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,10 @@
+package com.chatflow.service;
+
+/**
+ * What an outbound session does when its send buffer is full
+ */
+public enum OverflowPolicy {
+    DROP_OLDEST,   // evict the oldest buffered frames to make room
+    DROP_NEWEST,   // discard the frame being sent
+    CLOSE          // close the session as not reliable
+}
@@ -0,0 +1,57 @@
+package com.chatflow.service;
+
+import com.chatflow.codec.ResponseFrames;
+import com.chatflow.codec.WireProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * RoomBroadcaster class fans out an accepted message to every session in a room.
+ * Each frame is serialized at most once per wire protocol (see ResponseFrames); the same
+ * WebSocketMessage instance (and its payload bytes) is shared by all recipients. Each recipient is an AsyncSendSessionDecorator
+ * from ConnectionManager, so sending only enqueues and a slow consumer only fills its own buffer.
+ */
+@Service
+public class RoomBroadcaster {
+    
+    private static final Logger log = LoggerFactory.getLogger(RoomBroadcaster.class);
+    
+    private final ConnectionManager connectionManager;
+    
+    public RoomBroadcaster(ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+    
+    /**
+     * Deliver a message to all open sessions in a room, each in its own wire protocol
+     * @param roomId
+     * @param frames
+     * @return number of sessions the frame was handed to
+     */
+    public int broadcast(String roomId, ResponseFrames frames) {
+        Map<String, WebSocketSession> sessions = connectionManager.getRoomSessions(roomId);
+        if (sessions == null) {
+            return 0;
+        }
+        
+        int delivered = 0;
+        for (WebSocketSession session : sessions.values()) {
+            if (!session.isOpen()) {
+                continue;
+            }
+            try {
+                session.sendMessage(frames.frameFor(WireProtocol.of(session)));
+                delivered++;
+            } catch (IOException e) {
+                log.warn("Broadcast failed | Room: {} | Session: {} | {}", 
+                        roomId, session.getId(), e.getMessage());
+            }
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,82 @@
+package com.chatflow.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RoomMetrics class holds the message, byte, error and dropped-message counters of one chat
+ * room, from the room's creation (first session) until it empties.
+ * Counters are LongAdders, so handler threads recording into the same room update
+ * separate cells instead of contending on one cache line. The message rate gauge is
+ * derived on the read side only, from the counter delta between two reads.
+ */
+public class RoomMetrics {
+
+    // Minimum interval between two rate samples; reads in between return the last rate
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    // Overflow-policy drops of sessions that have left the room (live sessions keep their own)
+    private final LongAdder droppedByClosedSessions = new LongAdder();
+
+    // Read side only, guarded by this
+    private long lastSampleNanos = System.nanoTime();
+    private long lastSampleMessages = 0;
+    private double messagesPerSecond = 0;
+
+    /**
+     * Record an accepted message
+     * @param payloadBytes size of the inbound frame in bytes (UTF-8 bytes for text frames)
+     */
+    public void recordMessage(int payloadBytes) {
+        messages.increment();
+        bytes.add(payloadBytes);
+    }
+
+    /**
+     * Record a rejected message (decode or validation error)
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Add the drops of a session leaving the room
+     */
+    public void recordDropped(long dropped) {
+        droppedByClosedSessions.add(dropped);
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getDroppedByClosedSessions() {
+        return droppedByClosedSessions.sum();
+    }
+
+    /**
+     * Accepted messages per second over the last sampling window (at least one second)
+     */
+    public synchronized double getMessagesPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleNanos;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            long total = messages.sum();
+            messagesPerSecond = (total - lastSampleMessages) * 1e9 / elapsed;
+            lastSampleMessages = total;
+            lastSampleNanos = now;
+        }
+        return messagesPerSecond;
+    }
+}
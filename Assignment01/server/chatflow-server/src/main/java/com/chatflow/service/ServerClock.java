@@ -0,0 +1,74 @@
+package com.chatflow.service;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * ServerClock class is the shared timestamp source for ServerResponse and ErrorResponse.
+ * The time is truncated to a configurable tick (default 1ms) and each tick is formatted
+ * to ISO-8601 only once; every handler thread reading the clock within the same tick
+ * gets the same cached Tick (string and pre-encoded JSON bytes) without allocating.
+ */
+@Component
+public class ServerClock {
+    
+    /**
+     * One tick of the clock: epoch millis plus its cached ISO-8601 forms
+     */
+    public static final class Tick {
+        private final long epochMillis;
+        private final String iso;
+        private final SerializedString isoJson;
+        
+        private Tick(long epochMillis) {
+            this.epochMillis = epochMillis;
+            this.iso = Instant.ofEpochMilli(epochMillis).toString();
+            this.isoJson = new SerializedString(iso);
+        }
+        
+        public long getEpochMillis() { return epochMillis; }
+        
+        public String getIso() { return iso; }
+        
+        /** ISO-8601 string whose quoted UTF-8 encoding Jackson caches after first use */
+        public SerializedString getIsoJson() { return isoJson; }
+    }
+    
+    private final long tickMillis;
+    private final boolean numericTimestamps;
+    
+    // Racing threads may each format the same new tick once; any of them is correct
+    private volatile Tick current = new Tick(0);
+    
+    public ServerClock(@Value("${chatflow.clock.tick:1ms}") Duration tick,
+                       @Value("${chatflow.clock.numeric-timestamps:false}") boolean numericTimestamps) {
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.numericTimestamps = numericTimestamps;
+    }
+    
+    /**
+     * Current time truncated to the tick
+     */
+    public Tick now() {
+        long nowMillis = System.currentTimeMillis();
+        long tickStart = nowMillis - nowMillis % tickMillis;
+        
+        Tick tick = current;
+        if (tick.epochMillis != tickStart) {
+            tick = new Tick(tickStart);
+            current = tick;
+        }
+        return tick;
+    }
+    
+    /**
+     * Whether JSON responses carry timestamps as epoch millis numbers instead of ISO-8601 strings
+     */
+    public boolean isNumericTimestamps() {
+        return numericTimestamps;
+    }
+}
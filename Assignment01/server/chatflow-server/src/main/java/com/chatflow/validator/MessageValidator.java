@@ -1,74 +1,254 @@
 package com.chatflow.validator;
 
 import com.chatflow.model.ChatMessage;
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validation;
-import jakarta.validation.Validator;
-import jakarta.validation.ValidatorFactory;
 
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * MessageValidator class provides a method to validate ChatMessage objects.
- * It performs:
- * 1. Bean Validation using annotations in ChatMessage class.
- * 2. Custom validation for userId to ensure it's a valid integer within a specific range.
- * 3. Custom validation for timestamp to ensure it's in valid ISO-8601 format.
- * 4. Additional checks for message content (e.g., not empty or whitespace only).
+ * It checks the same rules declared by the annotations in ChatMessage, by hand:
+ * 1. Required fields, username length/alphanumeric and message length.
+ * 2. userId must be a valid integer within 1-100000.
+ * 3. timestamp must be in valid ISO-8601 format, within the epoch millis range
+ *    since the binary protocol carries it as an int64 of milliseconds.
+ * 4. message must not be empty or whitespace only.
+ *
+ * Every rule is a single pass over the field's characters. Nothing is allocated
+ * when the message is valid; the error list is only created for the first failure.
+ * Error strings are identical to the previous Bean Validation based implementation, plus
+ * "timestamp is out of range" for the epoch millis range check it did not have.
  */
 public class MessageValidator {
-    
-    private static final Validator validator;
-    
-    static {
-        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-        validator = factory.getValidator();
-    }
-    
+
+    private static final int MIN_USER_ID = 1;
+    private static final int MAX_USER_ID = 100000;
+
+    private static final int USERID_OK = 0;
+    private static final int USERID_OUT_OF_RANGE = 1;
+    private static final int USERID_NOT_INTEGER = 2;
+
+    private static final int TIMESTAMP_OK = 0;
+    private static final int TIMESTAMP_OUT_OF_RANGE = 1;
+    private static final int TIMESTAMP_NOT_ISO = 2;
+
     /**
      * Validate a ChatMessage object
-     * @return List of error messages (empty list means validation passed)
+     * @return List of error messages (empty list means validation passed;
+     *         the empty list is shared and must not be modified)
      */
     public static List<String> validate(ChatMessage message) {
-        List<String> errors = new ArrayList<>();
-        
-        // 1. Bean Validation
-        Set<ConstraintViolation<ChatMessage>> violations = validator.validate(message);
-        errors.addAll(violations.stream()
-                .map(ConstraintViolation::getMessage)
-                .collect(Collectors.toList()));
-        
-        // 2. userId 
-        if (message.getUserId() != null) {
-            try {
-                int userId = Integer.parseInt(message.getUserId());
-                if (userId < 1 || userId > 100000) {
-                    errors.add("userId must be between 1 and 100000");
-                }
-            } catch (NumberFormatException e) {
-                errors.add("userId must be a valid integer");
+        List<String> errors = null;
+
+        String userId = message.getUserId();
+        String username = message.getUsername();
+        String text = message.getMessage();
+        String timestamp = message.getTimestamp();
+
+        // 1. Constraints declared on ChatMessage
+        if (userId == null) {
+            errors = addError(errors, "userId is required");
+        }
+
+        if (username == null) {
+            errors = addError(errors, "username is required");
+        } else {
+            if (username.length() < 3 || username.length() > 20) {
+                errors = addError(errors, "username must be 3-20 characters");
+            }
+            if (!isAlphanumeric(username)) {
+                errors = addError(errors, "username must be alphanumeric");
+            }
+        }
+
+        if (text == null) {
+            errors = addError(errors, "message is required");
+        } else if (text.length() < 1 || text.length() > 500) {
+            errors = addError(errors, "message must be 1-500 characters");
+        }
+
+        if (timestamp == null) {
+            errors = addError(errors, "timestamp is required");
+        }
+
+        if (message.getMessageType() == null) {
+            errors = addError(errors, "messageType is required");
+        }
+
+        // 2. userId
+        if (userId != null) {
+            int result = checkUserId(userId);
+            if (result == USERID_OUT_OF_RANGE) {
+                errors = addError(errors, "userId must be between 1 and 100000");
+            } else if (result == USERID_NOT_INTEGER) {
+                errors = addError(errors, "userId must be a valid integer");
             }
         }
-        
+
         // 3. ISO-8601
-        if (message.getTimestamp() != null) {
-            try {
-                Instant.parse(message.getTimestamp());
-            } catch (DateTimeParseException e) {
-                errors.add("timestamp must be valid ISO-8601 format (e.g., 2026-02-08T10:30:00Z)");
+        if (timestamp != null) {
+            int result = checkTimestamp(timestamp);
+            if (result == TIMESTAMP_NOT_ISO) {
+                errors = addError(errors, "timestamp must be valid ISO-8601 format (e.g., 2026-02-08T10:30:00Z)");
+            } else if (result == TIMESTAMP_OUT_OF_RANGE) {
+                errors = addError(errors, "timestamp is out of range");
             }
         }
-        
+
         // 4. Message content validation
-        if (message.getMessage() != null && message.getMessage().trim().isEmpty()) {
-            errors.add("message cannot be empty or whitespace only");
+        if (text != null && isBlank(text)) {
+            errors = addError(errors, "message cannot be empty or whitespace only");
         }
-        
+
+        return errors != null ? errors : Collections.emptyList();
+    }
+
+    private static List<String> addError(List<String> errors, String error) {
+        if (errors == null) {
+            errors = new ArrayList<>(4);
+        }
+        errors.add(error);
         return errors;
     }
-}
\ No newline at end of file
+
+    /**
+     * Same as the former @Pattern("^[a-zA-Z0-9]+$")
+     */
+    private static boolean isAlphanumeric(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as s.trim().isEmpty(): trim() strips every char <= U+0020
+     */
+    private static boolean isBlank(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse userId with Integer.parseInt semantics (optional sign, any Unicode
+     * decimal digits, int overflow is invalid) without allocating an exception
+     */
+    private static int checkUserId(String s) {
+        int len = s.length();
+        if (len == 0) {
+            return USERID_NOT_INTEGER;
+        }
+
+        int i = 0;
+        boolean negative = false;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+') {
+            if (len == 1) {
+                return USERID_NOT_INTEGER;
+            }
+            negative = first == '-';
+            i = 1;
+        }
+
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < len; i++) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) {
+                return USERID_NOT_INTEGER;
+            }
+            value = value * 10 + digit;
+            if (value > limit) {
+                return USERID_NOT_INTEGER;
+            }
+        }
+
+        long userId = negative ? -value : value;
+        return (userId < MIN_USER_ID || userId > MAX_USER_ID) ? USERID_OUT_OF_RANGE : USERID_OK;
+    }
+
+    /**
+     * Fast path for the common form yyyy-MM-ddTHH:mm:ss[.fffffffff]Z, whose
+     * 4-digit years always fit in epoch millis.
+     * Anything else (offsets, lowercase, leap seconds, 24:00, extended years...) is
+     * decided by Instant.parse, so the accepted format is exactly that of Instant.parse;
+     * instants beyond what toEpochMilli can represent are out of range.
+     */
+    private static int checkTimestamp(String s) {
+        int len = s.length();
+        if (len >= 20 && len <= 30
+                && s.charAt(4) == '-' && s.charAt(7) == '-' && s.charAt(10) == 'T'
+                && s.charAt(13) == ':' && s.charAt(16) == ':' && s.charAt(len - 1) == 'Z') {
+
+            int year = digits(s, 0, 4);
+            int month = digits(s, 5, 2);
+            int day = digits(s, 8, 2);
+            int hour = digits(s, 11, 2);
+            int minute = digits(s, 14, 2);
+            int second = digits(s, 17, 2);
+
+            boolean fractionOk = len == 20
+                    || (len > 21 && s.charAt(19) == '.' && digits(s, 20, len - 21) >= 0);
+
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1
+                    && day <= daysInMonth(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+                    && second >= 0 && second <= 59 && fractionOk) {
+                return TIMESTAMP_OK;
+            }
+        }
+
+        Instant instant;
+        try {
+            instant = Instant.parse(s);
+        } catch (DateTimeParseException e) {
+            return TIMESTAMP_NOT_ISO;
+        }
+        try {
+            instant.toEpochMilli();
+            return TIMESTAMP_OK;
+        } catch (ArithmeticException e) {
+            return TIMESTAMP_OUT_OF_RANGE;
+        }
+    }
+
+    /**
+     * @return the ASCII decimal value of s[offset, offset + count), or -1 if not all digits
+     */
+    private static int digits(String s, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.chatflow.codec;
+
+import com.chatflow.model.ChatMessage;
+import com.chatflow.model.ServerResponse;
+import com.chatflow.service.ServerClock;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonMessageCodec against the ObjectMapper (databind) path it replaced:
+ * decoding an inbound ChatMessage and encoding the ServerResponse broadcast for it.
+ * Run with -prof gc to compare allocation per message as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMessageCodecBenchmark {
+
+    private static final String PAYLOAD = "{\"userId\":\"12345\",\"username\":\"user12345\"," +
+            "\"message\":\"Hello everyone, how is it going?\",\"timestamp\":\"2026-02-08T10:30:00.123Z\"," +
+            "\"messageType\":\"TEXT\",\"messageId\":\"987654321\"}";
+    private static final String ROOM_ID = "7";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ServerClock serverClock;
+    private JsonMessageCodec codec;
+    private DecodedMessage decoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        serverClock = new ServerClock(Duration.ofMillis(1), false);
+        codec = new JsonMessageCodec(serverClock);
+        decoded = codec.decode(PAYLOAD);
+    }
+
+    @Benchmark
+    public DecodedMessage decodeCodec() throws IOException {
+        return codec.decode(PAYLOAD);
+    }
+
+    @Benchmark
+    public ChatMessage decodeObjectMapper() throws IOException {
+        return objectMapper.readValue(PAYLOAD, ChatMessage.class);
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() throws IOException {
+        return codec.encodeServerResponse(decoded, serverClock.now(), "SUCCESS", ROOM_ID);
+    }
+
+    @Benchmark
+    public byte[] encodeObjectMapper() throws IOException {
+        ServerResponse response = new ServerResponse(decoded.getMessage(), serverClock.now().getIso(),
+                "SUCCESS", ROOM_ID);
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
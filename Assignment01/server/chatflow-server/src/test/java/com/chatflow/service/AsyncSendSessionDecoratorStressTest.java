@@ -0,0 +1,281 @@
+package com.chatflow.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrent senders broadcasting into one slow session: writes to the underlying session
+ * must never overlap, the buffer must stay within its limit, and every frame has to be
+ * either delivered (in send order per sender) or counted as dropped by the overflow policy.
+ * A session stuck in a write is closed by the send-time watchdog.
+ */
+class AsyncSendSessionDecoratorStressTest {
+
+    private static final int SENDERS = 8;
+    private static final int MESSAGES_PER_SENDER = 2_000;
+    // Every frame is "sender:sequence" padded to the same length
+    private static final int FRAME_SIZE = 32;
+
+    private ExecutorService drainExecutor;
+    private ExecutorService senders;
+    private SlowSession slowSession;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        drainExecutor = Executors.newFixedThreadPool(4);
+        senders = Executors.newFixedThreadPool(SENDERS);
+        slowSession = new SlowSession();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowSession.release();
+        senders.shutdownNow();
+        drainExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentSendersNeverOverlapWrites() throws Exception {
+        AsyncSendSessionDecorator session = decorate(Integer.MAX_VALUE, OverflowPolicy.DROP_OLDEST);
+        slowSession.release();
+        slowSession.pauseEvery = 64;
+
+        sendConcurrently(session);
+        awaitDrained(session, SENDERS * MESSAGES_PER_SENDER);
+
+        assertThat(slowSession.maxConcurrentWrites.get()).isEqualTo(1);
+        assertThat(session.getDroppedMessages()).isZero();
+        assertThat(slowSession.written).hasSize(SENDERS * MESSAGES_PER_SENDER);
+        assertInSendOrder(slowSession.written);
+    }
+
+    @Test
+    void dropOldestEvictsBufferedFramesWhenTheSessionStalls() throws Exception {
+        int bufferedFrames = 100;
+        AsyncSendSessionDecorator session = decorate(bufferedFrames * FRAME_SIZE, OverflowPolicy.DROP_OLDEST);
+
+        // The first write stalls until every sender is done, so the buffer overflows
+        sendConcurrently(session);
+        assertThat(session.getBufferSize()).isLessThanOrEqualTo(bufferedFrames * FRAME_SIZE);
+        slowSession.release();
+
+        int total = SENDERS * MESSAGES_PER_SENDER;
+        awaitDrained(session, total - (int) session.getDroppedMessages());
+
+        assertThat(slowSession.maxConcurrentWrites.get()).isEqualTo(1);
+        assertThat(session.getDroppedMessages()).isPositive();
+        assertThat(slowSession.written.size() + session.getDroppedMessages()).isEqualTo(total);
+        // The stalled frame plus at most a full buffer
+        assertThat(slowSession.written.size()).isLessThanOrEqualTo(1 + bufferedFrames);
+        assertInSendOrder(slowSession.written);
+    }
+
+    @Test
+    void dropNewestRejectsFramesWhenTheSessionStalls() throws Exception {
+        int bufferedFrames = 100;
+        AsyncSendSessionDecorator session = decorate(bufferedFrames * FRAME_SIZE, OverflowPolicy.DROP_NEWEST);
+
+        sendConcurrently(session);
+        assertThat(session.getBufferSize()).isLessThanOrEqualTo(bufferedFrames * FRAME_SIZE);
+        slowSession.release();
+
+        int total = SENDERS * MESSAGES_PER_SENDER;
+        awaitDrained(session, total - (int) session.getDroppedMessages());
+
+        assertThat(slowSession.maxConcurrentWrites.get()).isEqualTo(1);
+        assertThat(session.getDroppedMessages()).isPositive();
+        assertThat(slowSession.written.size() + session.getDroppedMessages()).isEqualTo(total);
+        assertThat(slowSession.written.size()).isLessThanOrEqualTo(1 + bufferedFrames);
+        assertInSendOrder(slowSession.written);
+    }
+
+    @Test
+    void closePolicyClosesTheSessionAndStopsWriting() throws Exception {
+        AsyncSendSessionDecorator session = decorate(100 * FRAME_SIZE, OverflowPolicy.CLOSE);
+
+        sendConcurrently(session);
+        slowSession.release();
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        verify(slowSession.delegate, atLeastOnce()).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(session.getBufferSize()).isZero();
+        // At most the frame already being written when the buffer overflowed gets out
+        assertThat(slowSession.written.size()).isLessThanOrEqualTo(1);
+        assertThat(slowSession.maxConcurrentWrites.get()).isEqualTo(1);
+    }
+
+    @Test
+    void busySessionDoesNotHoldTheDrainThread() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSendSessionDecorator busy = new AsyncSendSessionDecorator(slowSession.delegate, singleThread,
+                    60_000, Integer.MAX_VALUE, OverflowPolicy.DROP_OLDEST);
+            WebSocketSession quietDelegate = mock(WebSocketSession.class);
+            AtomicInteger busyWrittenBeforeQuiet = new AtomicInteger(-1);
+            doAnswer(invocation -> {
+                busyWrittenBeforeQuiet.set(slowSession.written.size());
+                return null;
+            }).when(quietDelegate).sendMessage(any());
+            AsyncSendSessionDecorator quiet = new AsyncSendSessionDecorator(quietDelegate, singleThread,
+                    60_000, Integer.MAX_VALUE, OverflowPolicy.DROP_OLDEST);
+
+            // The busy session's first write holds the only drain thread while its backlog builds
+            for (int i = 0; i < 1_000; i++) {
+                busy.sendMessage(frame(0, i));
+            }
+            quiet.sendMessage(frame(1, 0));
+            slowSession.release();
+            awaitDrained(busy, 1_000);
+
+            // The quiet session got its turn after one batch, not after the whole backlog
+            assertThat(busyWrittenBeforeQuiet.get()).isBetween(1, 100);
+            assertThat(slowSession.written).hasSize(1_000);
+            assertInSendOrder(slowSession.written);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    void watchdogClosesASessionStuckInAWrite() throws Exception {
+        OutboundSessionFactory factory = new OutboundSessionFactory(Duration.ofMillis(50),
+                DataSize.ofKilobytes(512), OverflowPolicy.DROP_OLDEST, 2, false);
+        try {
+            AsyncSendSessionDecorator session = factory.decorate(slowSession.delegate);
+            // The write never completes and nothing else is sent
+            session.sendMessage(frame(0, 0));
+
+            verify(slowSession.delegate, timeout(5_000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+            assertThat(session.isClosing()).isTrue();
+        } finally {
+            slowSession.release();
+            factory.shutdown();
+        }
+    }
+
+    private AsyncSendSessionDecorator decorate(int bufferSizeLimit, OverflowPolicy overflowPolicy) {
+        return new AsyncSendSessionDecorator(slowSession.delegate, drainExecutor, 60_000,
+                bufferSizeLimit, overflowPolicy);
+    }
+
+    /**
+     * SENDERS threads each send MESSAGES_PER_SENDER frames, all starting together
+     */
+    private void sendConcurrently(AsyncSendSessionDecorator session) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int s = 0; s < SENDERS; s++) {
+            int sender = s;
+            futures.add(senders.submit(() -> {
+                start.await();
+                for (int i = 0; i < MESSAGES_PER_SENDER; i++) {
+                    session.sendMessage(frame(sender, i));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void awaitDrained(AsyncSendSessionDecorator session, int expectedWrites) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while ((slowSession.written.size() < expectedWrites || session.getBufferSize() > 0)
+                && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static TextMessage frame(int sender, int sequence) {
+        StringBuilder text = new StringBuilder().append(sender).append(':').append(sequence);
+        while (text.length() < FRAME_SIZE) {
+            text.append(' ');
+        }
+        return new TextMessage(text.toString());
+    }
+
+    /**
+     * Frames of each sender were written in the order that sender sent them
+     */
+    private static void assertInSendOrder(Queue<String> written) {
+        int[] last = new int[SENDERS];
+        Arrays.fill(last, -1);
+        for (String frame : written) {
+            String[] parts = frame.trim().split(":");
+            int sender = Integer.parseInt(parts[0]);
+            int sequence = Integer.parseInt(parts[1]);
+            assertThat(sequence).as("frame %s after %s:%s", frame.trim(), sender, last[sender])
+                    .isGreaterThan(last[sender]);
+            last[sender] = sequence;
+        }
+    }
+
+    /**
+     * Underlying session whose first write blocks until released, and which records
+     * how many writes ever ran at the same time
+     */
+    private static final class SlowSession {
+
+        final WebSocketSession delegate = mock(WebSocketSession.class);
+        final Queue<String> written = new ConcurrentLinkedQueue<>();
+        final AtomicInteger concurrentWrites = new AtomicInteger(0);
+        final AtomicInteger maxConcurrentWrites = new AtomicInteger(0);
+        final CountDownLatch released = new CountDownLatch(1);
+        volatile int pauseEvery = 0;
+
+        SlowSession() throws Exception {
+            when(delegate.getId()).thenReturn("slow-session");
+            when(delegate.isOpen()).thenReturn(true);
+            doAnswer(invocation -> {
+                int concurrent = concurrentWrites.incrementAndGet();
+                maxConcurrentWrites.accumulateAndGet(concurrent, Math::max);
+                try {
+                    released.await();
+                    WebSocketMessage<?> message = invocation.getArgument(0);
+                    written.add((String) message.getPayload());
+                    if (pauseEvery > 0 && written.size() % pauseEvery == 0) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                    }
+                } finally {
+                    concurrentWrites.decrementAndGet();
+                }
+                return null;
+            }).when(delegate).sendMessage(any());
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+}
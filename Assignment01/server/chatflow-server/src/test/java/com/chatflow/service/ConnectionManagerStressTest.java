@@ -0,0 +1,139 @@
+package com.chatflow.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Connect / disconnect churn across the 20 room IDs from many threads at once.
+ * A join racing with the leave that empties the same room must never land in a room map
+ * that has already been unlinked: every joined session has to stay visible to broadcasts.
+ */
+class ConnectionManagerStressTest {
+
+    private static final int ROOMS = 20;
+    private static final int THREADS = 16;
+    private static final int SESSIONS_PER_THREAD = 32;
+    private static final int OPERATIONS_PER_THREAD = 10_000;
+
+    private OutboundSessionFactory outboundSessionFactory;
+    private ConnectionManager connectionManager;
+
+    @BeforeEach
+    void setUp() {
+        outboundSessionFactory = new OutboundSessionFactory(
+                Duration.ofSeconds(10), DataSize.ofKilobytes(512), OverflowPolicy.DROP_OLDEST, 2, false);
+        connectionManager = new ConnectionManager(outboundSessionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        outboundSessionFactory.shutdown();
+    }
+
+    @Test
+    void joinedSessionsStayVisibleUnderChurn() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<String> lostJoins = new ConcurrentLinkedQueue<>();
+        List<Future<List<Joined>>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                // Each thread owns its sessions; a slot is either joined to one room or not joined
+                WebSocketSession[] sessions = new WebSocketSession[SESSIONS_PER_THREAD];
+                String[] joinedRoom = new String[SESSIONS_PER_THREAD];
+                for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+                    sessions[i] = session("s" + thread + "-" + i);
+                }
+                start.await();
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < OPERATIONS_PER_THREAD; op++) {
+                    int i = random.nextInt(SESSIONS_PER_THREAD);
+                    if (joinedRoom[i] == null) {
+                        String roomId = String.valueOf(1 + random.nextInt(ROOMS));
+                        connectionManager.addSession(roomId, sessions[i]);
+                        joinedRoom[i] = roomId;
+                        if (connectionManager.getOutboundSession(roomId, sessions[i].getId()) == null) {
+                            lostJoins.add(sessions[i].getId() + " in room " + roomId);
+                        }
+                    } else {
+                        connectionManager.removeSession(joinedRoom[i], sessions[i]);
+                        joinedRoom[i] = null;
+                    }
+                }
+
+                List<Joined> joined = new ArrayList<>();
+                for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+                    if (joinedRoom[i] != null) {
+                        joined.add(new Joined(joinedRoom[i], sessions[i]));
+                    }
+                }
+                return joined;
+            }));
+        }
+
+        start.countDown();
+        List<Joined> stillJoined = new ArrayList<>();
+        for (Future<List<Joined>> result : results) {
+            stillJoined.addAll(result.get());
+        }
+        executor.shutdown();
+
+        assertThat(lostJoins).isEmpty();
+        assertThat(connectionManager.getTotalConnections()).isEqualTo(stillJoined.size());
+        for (Joined joined : stillJoined) {
+            assertThat(connectionManager.getRoomSessions(joined.roomId))
+                    .containsKey(joined.session.getId());
+        }
+        int registered = 0;
+        for (int room = 1; room <= ROOMS; room++) {
+            Map<String, WebSocketSession> sessions = connectionManager.getRoomSessions(String.valueOf(room));
+            registered += sessions != null ? sessions.size() : 0;
+        }
+        assertThat(registered).isEqualTo(stillJoined.size());
+        // Metrics exist exactly for the rooms that have sessions
+        assertThat(connectionManager.getRoomMetrics().keySet())
+                .containsExactlyInAnyOrderElementsOf(
+                        stillJoined.stream().map(Joined::roomId).distinct().toList());
+
+        // Leaving every room removes the rooms themselves
+        for (Joined joined : stillJoined) {
+            connectionManager.removeSession(joined.roomId, joined.session);
+        }
+        assertThat(connectionManager.getRoomCount()).isZero();
+        assertThat(connectionManager.getRoomMetrics()).isEmpty();
+        assertThat(connectionManager.getTotalConnections()).isZero();
+    }
+
+    private static WebSocketSession session(String id) {
+        // stubOnly: no invocation recording, getId() runs on every join and leave
+        WebSocketSession session = mock(WebSocketSession.class, withSettings().stubOnly());
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    private record Joined(String roomId, WebSocketSession session) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.chatflow.validator;
+
+import com.chatflow.model.ChatMessage;
+import com.chatflow.model.MessageType;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * MessageValidator against the Bean Validation based implementation it replaced,
+ * for a valid message and for one that breaks several rules.
+ * Run with -prof gc to compare allocation per message as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageValidatorBenchmark {
+
+    private static final Validator BEAN_VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Param({"valid", "invalid"})
+    private String input;
+
+    private ChatMessage message;
+
+    @Setup
+    public void setUp() {
+        message = input.equals("valid")
+                ? new ChatMessage("12345", "user12345", "Hello everyone, how is it going?",
+                        "2026-02-08T10:30:00.123Z", MessageType.TEXT)
+                : new ChatMessage("abc", "no spaces allowed", "   ",
+                        "yesterday", MessageType.TEXT);
+    }
+
+    @Benchmark
+    public List<String> handWritten() {
+        return MessageValidator.validate(message);
+    }
+
+    @Benchmark
+    public List<String> beanValidation() {
+        return validateWithBeanValidation(message);
+    }
+
+    /**
+     * The previous MessageValidator.validate, kept verbatim as the baseline
+     */
+    private static List<String> validateWithBeanValidation(ChatMessage message) {
+        List<String> errors = new ArrayList<>();
+
+        // 1. Bean Validation
+        Set<ConstraintViolation<ChatMessage>> violations = BEAN_VALIDATOR.validate(message);
+        errors.addAll(violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toList()));
+
+        // 2. userId
+        if (message.getUserId() != null) {
+            try {
+                int userId = Integer.parseInt(message.getUserId());
+                if (userId < 1 || userId > 100000) {
+                    errors.add("userId must be between 1 and 100000");
+                }
+            } catch (NumberFormatException e) {
+                errors.add("userId must be a valid integer");
+            }
+        }
+
+        // 3. ISO-8601
+        if (message.getTimestamp() != null) {
+            try {
+                Instant.parse(message.getTimestamp());
+            } catch (DateTimeParseException e) {
+                errors.add("timestamp must be valid ISO-8601 format (e.g., 2026-02-08T10:30:00Z)");
+            }
+        }
+
+        // 4. Message content validation
+        if (message.getMessage() != null && message.getMessage().trim().isEmpty()) {
+            errors.add("message cannot be empty or whitespace only");
+        }
+
+        return errors;
+    }
+}